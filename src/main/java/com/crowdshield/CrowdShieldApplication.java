@@ -2,8 +2,10 @@ package com.crowdshield;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CrowdShieldApplication {
 
     // Main entry point for Spring Boot application
@@ -4,11 +4,16 @@ import com.crowdshield.api.dto.*;
 import com.crowdshield.model.AdminAction;
 import com.crowdshield.model.Content;
 import com.crowdshield.model.ModerationResult;
-import com.crowdshield.repository.ContentRepository;
 import com.crowdshield.service.AdminService;
+import com.crowdshield.service.BulkOverrideService;
+import com.crowdshield.service.ContentPreviewPage;
 import com.crowdshield.service.ContentService;
 import com.crowdshield.service.ModerationService;
+import com.crowdshield.service.ModerationViewService;
+import com.crowdshield.service.RawResponseService;
+import com.crowdshield.service.StuckContentSweeper;
 import com.crowdshield.util.ErrorUtils;
+import com.crowdshield.util.RawResponseCodec;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -16,7 +21,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,47 +34,52 @@ public class AdminController {
     private final AdminService adminService;
     private final ModerationService moderationService;
     private final ContentService contentService;
-    private final ContentRepository contentRepository;
+    private final StuckContentSweeper stuckContentSweeper;
+    private final RawResponseService rawResponseService;
+    private final ModerationViewService moderationViewService;
+    private final BulkOverrideService bulkOverrideService;
 
-    public AdminController(AdminService adminService, ModerationService moderationService, ContentService contentService, ContentRepository contentRepository) {
+    public AdminController(AdminService adminService, ModerationService moderationService, ContentService contentService,
+                           StuckContentSweeper stuckContentSweeper, RawResponseService rawResponseService,
+                           ModerationViewService moderationViewService, BulkOverrideService bulkOverrideService) {
         this.adminService = adminService;
         this.moderationService = moderationService;
         this.contentService = contentService;
-        this.contentRepository = contentRepository;
+        this.stuckContentSweeper = stuckContentSweeper;
+        this.rawResponseService = rawResponseService;
+        this.moderationViewService = moderationViewService;
+        this.bulkOverrideService = bulkOverrideService;
     }
 
+    // Retrieves one page of flagged content, newest first; the next page's cursor is returned in X-Next-Cursor
     @GetMapping("/flagged")
-    public ResponseEntity<?> getFlaggedContent(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+    public ResponseEntity<?> getFlaggedContent(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
         // JWT validation is handled by filter, but we can add additional checks here if needed
         try {
-            List<Content> flaggedContent = adminService.getFlaggedContent();
+            // Content and scores come from one single-table keyset query on moderation_view
+            ContentPreviewPage page = contentService.listPreviews(
+                    Content.ContentStatus.FLAGGED, cursor, Math.max(1, Math.min(limit, 500)));
 
-            List<FlaggedContentResponse> responses = flaggedContent.stream()
+            List<FlaggedContentResponse> responses = page.getItems().stream()
                     .map(content -> {
-                        Optional<ModerationResult> resultOpt = moderationService.getModerationResult(content.getId());
-                        
                         ContentResponse.Scores scores = null;
-                        if (resultOpt.isPresent()) {
-                            ModerationResult result = resultOpt.get();
+                        if (content.hasResult()) {
                             scores = ContentResponse.Scores.builder()
-                                    .toxicity(result.getToxicityScore())
-                                    .hate(result.getHateScore())
-                                    .sexual(result.getSexualScore())
-                                    .violence(result.getViolenceScore())
+                                    .toxicity(content.getToxicityScore())
+                                    .hate(content.getHateScore())
+                                    .sexual(content.getSexualScore())
+                                    .violence(content.getViolenceScore())
                                     .build();
                         }
 
-                        String preview = content.getType() == Content.ContentType.TEXT 
-                                ? (content.getTextContent() != null && content.getTextContent().length() > 100 
-                                        ? content.getTextContent().substring(0, 100) + "..." 
-                                        : content.getTextContent())
-                                : content.getImageUrl();
-
                         return FlaggedContentResponse.builder()
-                                .contentId(content.getId())
+                                .contentId(content.getContentId())
                                 .userId(content.getUserId())
                                 .type(content.getType().name())
-                                .preview(preview)
+                                .preview(content.getPreview())
                                 .status(content.getStatus().name())
                                 .scores(scores)
                                 .createdAt(content.getCreatedAt())
@@ -78,8 +87,16 @@ public class AdminController {
                     })
                     .collect(Collectors.toList());
 
-            return ResponseEntity.ok(responses);
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .header("X-Estimated-Total", String.valueOf(page.getEstimatedTotal()));
+            if (page.hasMore()) {
+                builder.header("X-Next-Cursor", page.getNextCursor());
+            }
+            return builder.body(responses);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ErrorUtils.createErrorResponse("INVALID_CURSOR", "cursor is not a valid continuation token"));
         } catch (Exception e) {
             log.error("Error retrieving flagged content", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -125,6 +142,46 @@ public class AdminController {
         }
     }
 
+    // Overrides the moderation decision for a list of content IDs or for every item matching a filter
+    @PostMapping("/action/bulk")
+    public ResponseEntity<?> bulkOverrideDecision(
+            @Valid @RequestBody BulkOverrideRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // JWT validation is handled by filter
+        boolean hasIds = request.getContentIds() != null && !request.getContentIds().isEmpty();
+        if (hasIds == (request.getFilter() != null)) {
+            return ResponseEntity.badRequest()
+                    .body(ErrorUtils.createErrorResponse("INVALID_REQUEST", "Exactly one of contentIds and filter is required"));
+        }
+
+        String adminId = SecurityContextHolder.getContext().getAuthentication() != null
+                ? SecurityContextHolder.getContext().getAuthentication().getName()
+                : "unknown";
+
+        BulkOverrideService.BulkOverrideRun run;
+        try {
+            if (hasIds) {
+                run = bulkOverrideService.overrideIds(request.getContentIds(), adminId,
+                        request.getNewLabel(), request.getNote());
+            } else {
+                BulkOverrideRequest.Filter filter = request.getFilter();
+                run = bulkOverrideService.overrideMatching(
+                        filter.getStatus() != null ? Content.ContentStatus.valueOf(filter.getStatus()) : null,
+                        filter.getUserId(), filter.getChannel(), filter.getCreatedFrom(), filter.getCreatedTo(),
+                        adminId, request.getNewLabel(), request.getNote());
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ErrorUtils.createErrorResponse("INVALID_REQUEST", e.getMessage()));
+        }
+
+        // Chunks committed before a failure stay applied, so the summary is returned either way
+        BulkOverrideResponse response = BulkOverrideResponse.from(run);
+        return run.getError() == null
+                ? ResponseEntity.ok(response)
+                : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
     // Retrieves complete moderation history including initial decision and admin overrides
     @GetMapping("/history/{contentId}")
     public ResponseEntity<?> getModerationHistory(
@@ -183,6 +240,40 @@ public class AdminController {
         }
     }
 
+    // Returns the stored provider response for a content item's moderation result, decoding the compact form;
+    // encoding tells whether it is the exact JSON ("json") or a lossy decoded form ("compact-v1")
+    @GetMapping("/content/{contentId}/raw-response")
+    public ResponseEntity<?> getRawResponse(
+            @PathVariable UUID contentId,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // JWT validation is handled by filter
+        try {
+            Optional<ModerationResult> resultOpt = moderationService.getModerationResult(contentId);
+            if (resultOpt.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ErrorUtils.createErrorResponse("RESULT_NOT_FOUND",
+                                "No moderation result for content " + contentId));
+            }
+
+            ModerationResult result = resultOpt.get();
+            return rawResponseService.decode(result)
+                    .<ResponseEntity<?>>map(raw -> ResponseEntity.ok(java.util.Map.of(
+                            "contentId", contentId,
+                            "storedAs", result.getRawResponse() != null ? "JSON" : "COMPACT",
+                            "encoding", result.getRawResponse() != null
+                                    ? "json" : RawResponseCodec.encoding(result.getRawEncoded()),
+                            "rawResponse", raw
+                    )))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(ErrorUtils.createErrorResponse("RAW_RESPONSE_NOT_STORED",
+                                    "The provider response for content " + contentId + " was not kept")));
+        } catch (Exception e) {
+            log.error("Error decoding raw response", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
+        }
+    }
+
     // Deletes a content item and all associated data
     @DeleteMapping("/content/{contentId}")
     public ResponseEntity<?> deleteContent(
@@ -206,38 +297,12 @@ public class AdminController {
         }
     }
 
-    // Fixes content items stuck in PROCESSING status by checking for results or marking as ERROR
+    // Fixes content items stuck in PROCESSING status by applying their stored result or marking them ERROR
     @PostMapping("/fix-stuck-processing")
     public ResponseEntity<?> fixStuckProcessing(@RequestHeader(value = "Authorization", required = false) String authHeader) {
         try {
-            // Find all content stuck in PROCESSING status for more than 5 minutes
-            List<Content> stuckContent = contentRepository.findAll().stream()
-                    .filter(c -> c.getStatus() == Content.ContentStatus.PROCESSING)
-                    .filter(c -> c.getUpdatedAt() != null && 
-                            c.getUpdatedAt().isBefore(LocalDateTime.now().minusMinutes(5)))
-                    .collect(Collectors.toList());
-
-            int fixed = 0;
-            for (Content content : stuckContent) {
-                // Check if there's a moderation result (job completed but status not updated)
-                Optional<ModerationResult> resultOpt = moderationService.getModerationResult(content.getId());
-                if (resultOpt.isPresent()) {
-                    ModerationResult result = resultOpt.get();
-                    Content.ContentStatus newStatus = result.getOverallLabel() == ModerationResult.ModerationLabel.FLAGGED
-                            ? Content.ContentStatus.FLAGGED
-                            : Content.ContentStatus.SAFE;
-                    content.setStatus(newStatus);
-                    contentRepository.save(content);
-                    fixed++;
-                    log.info("Fixed stuck content {} - updated to {}", content.getId(), newStatus);
-                } else {
-                    // No result means job failed - mark as ERROR
-                    content.setStatus(Content.ContentStatus.ERROR);
-                    contentRepository.save(content);
-                    fixed++;
-                    log.info("Fixed stuck content {} - marked as ERROR (no result)", content.getId());
-                }
-            }
+            // Same indexed, chunked sweep that runs on a schedule
+            int fixed = stuckContentSweeper.sweep();
 
             return ResponseEntity.ok(java.util.Map.of(
                     "message", "Fixed stuck processing items",
@@ -249,4 +314,25 @@ public class AdminController {
                     .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
         }
     }
+
+    // Recomputes the admin listing read model from the source tables
+    @PostMapping("/moderation-view/rebuild")
+    public ResponseEntity<?> rebuildModerationView(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // JWT validation is handled by filter
+        try {
+            int rows = moderationViewService.rebuild();
+
+            return ResponseEntity.ok(java.util.Map.of(
+                    "message", "Rebuilt moderation view",
+                    "count", rows
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ErrorUtils.createErrorResponse("REBUILD_IN_PROGRESS", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error rebuilding moderation view", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
+        }
+    }
 }
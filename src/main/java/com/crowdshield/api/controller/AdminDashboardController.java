@@ -2,13 +2,13 @@ package com.crowdshield.api.controller;
 
 import com.crowdshield.api.dto.ContentResponse;
 import com.crowdshield.model.Content;
-import com.crowdshield.repository.ContentRepository;
-import com.crowdshield.repository.ModerationResultRepository;
+import com.crowdshield.model.ModerationView;
+import com.crowdshield.service.ContentPreviewPage;
+import com.crowdshield.service.ContentSearchService;
+import com.crowdshield.service.ContentService;
+import com.crowdshield.service.StatusCounterService;
+import com.crowdshield.util.ErrorUtils;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,16 +22,19 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/admin/dashboard")
 public class AdminDashboardController {
 
-    private final ContentRepository contentRepository;
-    private final ModerationResultRepository moderationResultRepository;
+    private final ContentService contentService;
+    private final StatusCounterService statusCounterService;
+    private final ContentSearchService contentSearchService;
     private final com.crowdshield.util.JwtUtil jwtUtil;
 
     public AdminDashboardController(
-            ContentRepository contentRepository,
-            ModerationResultRepository moderationResultRepository,
+            ContentService contentService,
+            StatusCounterService statusCounterService,
+            ContentSearchService contentSearchService,
             com.crowdshield.util.JwtUtil jwtUtil) {
-        this.contentRepository = contentRepository;
-        this.moderationResultRepository = moderationResultRepository;
+        this.contentService = contentService;
+        this.statusCounterService = statusCounterService;
+        this.contentSearchService = contentSearchService;
         this.jwtUtil = jwtUtil;
     }
 
@@ -48,10 +51,10 @@ public class AdminDashboardController {
         return false;
     }
 
-    // Retrieves paginated list of all content with optional status filter
+    // Retrieves a keyset-paginated list of all content with optional status filter
     @GetMapping("/content")
     public ResponseEntity<?> getAllContent(
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) String status,
             @RequestHeader(value = "Authorization", required = false) String authHeader) {
@@ -60,90 +63,133 @@ public class AdminDashboardController {
             return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
         }
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<Content> contentPage;
-
+        Content.ContentStatus contentStatus = null;
         if (status != null && !status.isEmpty()) {
             try {
-                Content.ContentStatus contentStatus = Content.ContentStatus.valueOf(status.toUpperCase());
-                contentPage = contentRepository.findByStatus(contentStatus, pageable);
+                contentStatus = Content.ContentStatus.valueOf(status.toUpperCase());
             } catch (IllegalArgumentException e) {
-                contentPage = contentRepository.findAll(pageable);
+                // Unknown status lists all content
             }
-        } else {
-            contentPage = contentRepository.findAll(pageable);
         }
 
-        List<ContentResponse> contentList = contentPage.getContent().stream()
-                .map((Content content) -> {
-                    var result = moderationResultRepository.findByContentId(content.getId());
-                    String preview = "";
-                    if (content.getType() == Content.ContentType.TEXT) {
-                        String text = content.getTextContent() != null ? content.getTextContent() : "";
-                        preview = text.length() > 100 ? text.substring(0, 100) + "..." : text;
-                    } else {
-                        preview = content.getImageUrl() != null ? content.getImageUrl() : "";
-                    }
-                    
-                    ContentResponse.Scores scores = null;
-                    String label = null;
-                    if (result.isPresent()) {
-                        var r = result.get();
-                        scores = new ContentResponse.Scores(
-                                r.getToxicityScore(),
-                                r.getHateScore(),
-                                r.getSexualScore(),
-                                r.getViolenceScore()
-                        );
-                        label = r.getOverallLabel().name();
-                    }
-                    
-                    return ContentResponse.builder()
-                            .contentId(content.getId())
-                            .status(content.getStatus().name())
-                            .userId(content.getUserId())
-                            .contentType(content.getType().name())
-                            .preview(preview)
-                            .createdAt(content.getCreatedAt())
-                            .scores(scores)
-                            .label(label)
-                            .build();
-                })
+        int pageSize = Math.max(1, Math.min(size, 100));
+        ContentPreviewPage contentPage;
+        try {
+            contentPage = contentService.listPreviews(contentStatus, cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ErrorUtils.createErrorResponse("INVALID_CURSOR", "cursor is not a valid continuation token"));
+        }
+
+        // Content and scores come from one moderation_view query, so no per-row lookups
+        List<ContentResponse> contentList = contentPage.getItems().stream()
+                .map(this::toContentResponse)
                 .collect(Collectors.toList());
 
         Map<String, Object> response = new HashMap<>();
         response.put("content", contentList);
-        response.put("totalElements", contentPage.getTotalElements());
-        response.put("totalPages", contentPage.getTotalPages());
-        response.put("currentPage", page);
-        response.put("size", size);
+        response.put("nextCursor", contentPage.getNextCursor());
+        response.put("hasMore", contentPage.hasMore());
+        response.put("estimatedTotal", contentPage.getEstimatedTotal());
+        response.put("size", pageSize);
 
         return ResponseEntity.ok(response);
     }
 
-    // Retrieves dashboard statistics including counts by status
+    // Retrieves dashboard statistics including counts by status, read from the maintained status counters
     @GetMapping("/statistics")
     public ResponseEntity<?> getStatistics(@RequestHeader(value = "Authorization", required = false) String authHeader) {
         if (!isAdmin(authHeader)) {
             return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
         }
 
-        long totalContent = contentRepository.count();
-        long pendingContent = contentRepository.countByStatus(Content.ContentStatus.PENDING);
-        long processingContent = contentRepository.countByStatus(Content.ContentStatus.PROCESSING);
-        long safeContent = contentRepository.countByStatus(Content.ContentStatus.SAFE);
-        long flaggedContent = contentRepository.countByStatus(Content.ContentStatus.FLAGGED);
-        long errorContent = contentRepository.countByStatus(Content.ContentStatus.ERROR);
+        Map<Content.ContentStatus, Long> counts = statusCounterService.getCounts();
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("total", totalContent);
-        stats.put("pending", pendingContent);
-        stats.put("processing", processingContent);
-        stats.put("safe", safeContent);
-        stats.put("flagged", flaggedContent);
-        stats.put("error", errorContent);
+        stats.put("total", counts.values().stream().mapToLong(Long::longValue).sum());
+        stats.put("pending", counts.get(Content.ContentStatus.PENDING));
+        stats.put("processing", counts.get(Content.ContentStatus.PROCESSING));
+        stats.put("safe", counts.get(Content.ContentStatus.SAFE));
+        stats.put("flagged", counts.get(Content.ContentStatus.FLAGGED));
+        stats.put("review", counts.get(Content.ContentStatus.REVIEW));
+        stats.put("error", counts.get(Content.ContentStatus.ERROR));
 
         return ResponseEntity.ok(stats);
     }
-}
 
+    // Searches content by text (prefix or quoted phrase), user, status and score range, newest first
+    @GetMapping("/search")
+    public ResponseEntity<?> searchContent(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Float minScore,
+            @RequestParam(required = false) Float maxScore,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+
+        if (!isAdmin(authHeader)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+
+        Content.ContentStatus contentStatus = null;
+        if (status != null && !status.isEmpty()) {
+            try {
+                contentStatus = Content.ContentStatus.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest()
+                        .body(ErrorUtils.createErrorResponse("INVALID_STATUS", "Unknown status: " + status));
+            }
+        }
+
+        int pageSize = Math.max(1, Math.min(size, 100));
+        ContentPreviewPage results;
+        try {
+            results = contentSearchService.search(q, userId, contentStatus, category, minScore, maxScore,
+                    cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ErrorUtils.createErrorResponse("INVALID_SEARCH", e.getMessage()));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", results.getItems().stream()
+                .map(this::toContentResponse)
+                .collect(Collectors.toList()));
+        response.put("nextCursor", results.getNextCursor());
+        response.put("hasMore", results.hasMore());
+        response.put("size", pageSize);
+
+        return ResponseEntity.ok(response);
+    }
+
+    // Maps a listing row to the response shape shared by the content listing and search
+    private ContentResponse toContentResponse(ModerationView content) {
+        String preview = content.getPreview() != null ? content.getPreview() : "";
+
+        ContentResponse.Scores scores = null;
+        String label = null;
+        if (content.hasResult()) {
+            scores = new ContentResponse.Scores(
+                    content.getToxicityScore(),
+                    content.getHateScore(),
+                    content.getSexualScore(),
+                    content.getViolenceScore()
+            );
+            label = content.getLabel().name();
+        }
+
+        return ContentResponse.builder()
+                .contentId(content.getContentId())
+                .status(content.getStatus().name())
+                .userId(content.getUserId())
+                .contentType(content.getType().name())
+                .preview(preview)
+                .createdAt(content.getCreatedAt())
+                .scores(scores)
+                .label(label)
+                .build();
+    }
+}
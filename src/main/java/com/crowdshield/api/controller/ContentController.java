@@ -1,50 +1,108 @@
 package com.crowdshield.api.controller;
 
+import com.crowdshield.api.dto.BatchContentRequest;
 import com.crowdshield.api.dto.ContentRequest;
 import com.crowdshield.api.dto.ContentResponse;
 import com.crowdshield.api.dto.ImageRequest;
 import com.crowdshield.model.Content;
-import com.crowdshield.model.ModerationResult;
 import com.crowdshield.service.ContentService;
-import com.crowdshield.service.ModerationService;
+import com.crowdshield.service.ContentStatusService;
+import com.crowdshield.service.IdempotencyService;
+import com.crowdshield.service.NewContent;
 import com.crowdshield.service.QueueService;
+import com.crowdshield.service.VerdictWaitService;
 import com.crowdshield.util.ErrorUtils;
 import com.crowdshield.util.RateLimiter;
+import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/content")
 public class ContentController {
 
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final ContentService contentService;
     private final QueueService queueService;
-    private final ModerationService moderationService;
+    private final ContentStatusService contentStatusService;
     private final RateLimiter rateLimiter;
     private final com.crowdshield.service.WebSocketService webSocketService;
+    private final VerdictWaitService verdictWaitService;
+    private final IdempotencyService idempotencyService;
+    private final int batchMaxItems;
+    private final long waitMaxMs;
 
     public ContentController(
             ContentService contentService,
             QueueService queueService,
-            ModerationService moderationService,
+            ContentStatusService contentStatusService,
             RateLimiter rateLimiter,
-            com.crowdshield.service.WebSocketService webSocketService) {
+            com.crowdshield.service.WebSocketService webSocketService,
+            VerdictWaitService verdictWaitService,
+            IdempotencyService idempotencyService,
+            @Value("${content.batch.max-items:500}") int batchMaxItems,
+            @Value("${content.wait.max-ms:10000}") long waitMaxMs) {
         this.contentService = contentService;
         this.queueService = queueService;
-        this.moderationService = moderationService;
+        this.contentStatusService = contentStatusService;
         this.rateLimiter = rateLimiter;
         this.webSocketService = webSocketService;
+        this.verdictWaitService = verdictWaitService;
+        this.idempotencyService = idempotencyService;
+        this.batchMaxItems = batchMaxItems;
+        this.waitMaxMs = waitMaxMs;
     }
 
     // Handles text content submission, validates input, applies rate limiting, creates content, and queues for moderation
     @PostMapping("/text")
-    public ResponseEntity<?> submitText(@RequestBody ContentRequest request) {
+    public ResponseEntity<?> submitText(@RequestBody ContentRequest request,
+                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotent("text", request.getUserId(), idempotencyKey, request, contentId -> { },
+                () -> submitText(request, contentId -> { }));
+    }
+
+    // Submits text like submitText, then waits up to `wait` ms for the verdict without holding a thread
+    @PostMapping(value = "/text", params = "wait")
+    public DeferredResult<ResponseEntity<?>> submitTextAndWait(@RequestBody ContentRequest request,
+                                                               @RequestParam("wait") long waitMs,
+                                                               @RequestHeader(value = "Idempotency-Key", required = false)
+                                                               String idempotencyKey) {
+        return awaitVerdict(waitMs, beforeQueue ->
+                idempotent("text", request.getUserId(), idempotencyKey, request, beforeQueue,
+                        () -> submitText(request, beforeQueue)));
+    }
+
+    // Submits an image like submitImage, then waits up to `wait` ms for the verdict without holding a thread
+    @PostMapping(value = "/image", params = "wait")
+    public DeferredResult<ResponseEntity<?>> submitImageAndWait(@RequestBody ImageRequest request,
+                                                                @RequestParam("wait") long waitMs,
+                                                                @RequestHeader(value = "Idempotency-Key", required = false)
+                                                                String idempotencyKey) {
+        return awaitVerdict(waitMs, beforeQueue ->
+                idempotent("image", request.getUserId(), idempotencyKey, request, beforeQueue,
+                        () -> submitImage(request, beforeQueue)));
+    }
+
+    private ResponseEntity<?> submitText(ContentRequest request, Consumer<UUID> beforeQueue) {
         try {
             // Use anonymous if user_id not provided
             String userId = (request.getUserId() != null && !request.getUserId().trim().isEmpty()) 
@@ -65,19 +123,23 @@ public class ContentController {
             }
 
             // Create content
-            Content content = contentService.createTextContent(userId, request.getText());
+            Content content = contentService.createTextContent(userId, request.getUserSegment(), request.getChannel(), request.getText());
 
             // Send initial PENDING status via WebSocket (10%)
             webSocketService.sendProgressUpdate(content.getId(), "PENDING", 10);
 
+            beforeQueue.accept(content.getId());
+
             // Create and push job to queue
             UUID jobId = UUID.randomUUID();
             queueService.pushToMainQueue(
                     jobId,
                     content.getId(),
                     "TEXT",
-                    request.getText(),
+                    content.getTextHash(),
                     null,
+                    content.getUserSegment(),
+                    content.getChannel(),
                     0
             );
 
@@ -97,7 +159,13 @@ public class ContentController {
 
     // Handles image content submission, validates URL, applies rate limiting, creates content, and queues for moderation
     @PostMapping("/image")
-    public ResponseEntity<?> submitImage(@RequestBody ImageRequest request) {
+    public ResponseEntity<?> submitImage(@RequestBody ImageRequest request,
+                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotent("image", request.getUserId(), idempotencyKey, request, contentId -> { },
+                () -> submitImage(request, contentId -> { }));
+    }
+
+    private ResponseEntity<?> submitImage(ImageRequest request, Consumer<UUID> beforeQueue) {
         try {
             // Use anonymous if user_id not provided
             String userId = (request.getUserId() != null && !request.getUserId().trim().isEmpty()) 
@@ -118,11 +186,13 @@ public class ContentController {
             }
 
             // Create content
-            Content content = contentService.createImageContent(userId, request.getImageUrl());
+            Content content = contentService.createImageContent(userId, request.getUserSegment(), request.getChannel(), request.getImageUrl());
 
             // Send initial PENDING status via WebSocket (10%)
             webSocketService.sendProgressUpdate(content.getId(), "PENDING", 10);
 
+            beforeQueue.accept(content.getId());
+
             // Create and push job to queue
             UUID jobId = UUID.randomUUID();
             queueService.pushToMainQueue(
@@ -131,6 +201,8 @@ public class ContentController {
                     "IMAGE",
                     null,
                     request.getImageUrl(),
+                    content.getUserSegment(),
+                    content.getChannel(),
                     0
             );
 
@@ -148,43 +220,183 @@ public class ContentController {
         }
     }
 
-    // Retrieves content status and moderation results for a given content ID
+    // Runs a submission at most once per user and Idempotency-Key: a repeated key returns 200 with the original
+    // content ID and its current status without creating or queuing anything, 409 while the original is still in
+    // flight, and 422 when the body differs from the original. Requests without the header are submitted as usual.
+    // beforeReplay gets the original content ID before its status is read.
+    private ResponseEntity<?> idempotent(String endpoint, String userId, String idempotencyKey, Object request,
+                                         Consumer<UUID> beforeReplay, Supplier<ResponseEntity<?>> submit) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return submit.get();
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body(ErrorUtils.createErrorResponse("INVALID_IDEMPOTENCY_KEY",
+                            "Idempotency-Key must be at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters"));
+        }
+
+        String fingerprint = IdempotencyService.fingerprint(request);
+        IdempotencyService.Reservation reservation = idempotencyService.reserve(endpoint, userId, idempotencyKey, fingerprint);
+        if (!reservation.isAcquired()) {
+            if (!reservation.isSameRequest()) {
+                return ResponseEntity.unprocessableEntity()
+                        .body(ErrorUtils.createErrorResponse("IDEMPOTENCY_KEY_REUSED",
+                                "This Idempotency-Key was already used with a different request body"));
+            }
+            UUID contentId = reservation.getContentId();
+            if (contentId == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(ErrorUtils.createErrorResponse("IDEMPOTENCY_KEY_IN_USE",
+                                "A request with this Idempotency-Key is still being processed"));
+            }
+
+            log.info("Replaying idempotent submission - endpoint: {}, content_id: {}", endpoint, contentId);
+            beforeReplay.accept(contentId);
+            return contentService.getContent(contentId)
+                    .<ResponseEntity<?>>map(content -> ResponseEntity.ok(ContentResponse.builder()
+                            .contentId(content.getId())
+                            .status(content.getStatus().name())
+                            .build()))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(ErrorUtils.createErrorResponse("CONTENT_NOT_FOUND",
+                                    "Content with id " + contentId + " not found")));
+        }
+
+        ResponseEntity<?> response = submit.get();
+        if (response.getStatusCode() == HttpStatus.CREATED && response.getBody() instanceof ContentResponse created) {
+            idempotencyService.complete(endpoint, userId, idempotencyKey, fingerprint, created.getContentId());
+        } else {
+            idempotencyService.release(endpoint, userId, idempotencyKey);
+        }
+        return response;
+    }
+
+    // Parks the request until the submitted item's verdict is committed or the deadline (capped at content.wait.max-ms)
+    // passes; answers 201 with status, label and scores, or the normal 201/PENDING response on timeout. An idempotent
+    // replay of an item that is still open waits the same way and answers 200. Errors from the submission itself and
+    // replays of decided items are returned as they are.
+    private DeferredResult<ResponseEntity<?>> awaitVerdict(long waitMs,
+                                                           Function<Consumer<UUID>, ResponseEntity<?>> submit) {
+        DeferredResult<ResponseEntity<?>> deferred = new DeferredResult<>(Math.max(1, Math.min(waitMs, waitMaxMs)));
+        UUID[] waitingFor = new UUID[1];
+        List<CompletableFuture<ContentResponse>> verdict = new ArrayList<>(1);
+
+        // The waiter is registered before the job is queued (or the replayed status is read), so a fast verdict
+        // cannot be missed
+        ResponseEntity<?> submitted = submit.apply(contentId -> {
+            waitingFor[0] = contentId;
+            verdict.add(verdictWaitService.await(contentId));
+        });
+
+        if (waitingFor[0] == null || waitMs <= 0 || !submitted.getStatusCode().is2xxSuccessful()
+                || !(submitted.getBody() instanceof ContentResponse response)
+                || !VerdictWaitService.isOpen(response.getStatus())) {
+            if (waitingFor[0] != null) {
+                verdictWaitService.cancel(waitingFor[0]);
+            }
+            deferred.setResult(submitted);
+            return deferred;
+        }
+
+        verdict.get(0).thenAccept(result ->
+                deferred.setResult(ResponseEntity.status(submitted.getStatusCode()).body(result)));
+        deferred.onTimeout(() -> deferred.setResult(submitted));
+        deferred.onCompletion(() -> verdictWaitService.cancel(waitingFor[0]));
+        return deferred;
+    }
+
+    // Handles submission of many text and image items at once: one batched insert and one queue push for the batch.
+    // The batch is accepted or rejected as a whole; item IDs are returned in input order.
+    @PostMapping("/batch")
+    public ResponseEntity<?> submitBatch(@Valid @RequestBody BatchContentRequest request) {
+        try {
+            List<BatchContentRequest.Item> items = request.getItems();
+            if (items.size() > batchMaxItems) {
+                return ResponseEntity.badRequest()
+                        .body(ErrorUtils.createErrorResponse("BATCH_TOO_LARGE",
+                                "A batch may contain at most " + batchMaxItems + " items"));
+            }
+
+            // Items without user_id share one anonymous ID for the batch
+            String anonymousId = "anonymous_" + System.currentTimeMillis();
+            List<NewContent> newContent = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                BatchContentRequest.Item item = items.get(i);
+                Content.ContentType type = Content.ContentType.valueOf(item.getType());
+                if (type == Content.ContentType.TEXT && (item.getText() == null || item.getText().trim().isEmpty())) {
+                    return ResponseEntity.badRequest()
+                            .body(ErrorUtils.createErrorResponse("INVALID_TEXT", "items[" + i + "]: Text cannot be empty"));
+                }
+                if (type == Content.ContentType.IMAGE && (item.getImageUrl() == null || item.getImageUrl().trim().isEmpty())) {
+                    return ResponseEntity.badRequest()
+                            .body(ErrorUtils.createErrorResponse("INVALID_IMAGE_URL", "items[" + i + "]: Image URL cannot be empty"));
+                }
+
+                String userId = (item.getUserId() != null && !item.getUserId().trim().isEmpty())
+                        ? item.getUserId()
+                        : anonymousId;
+                newContent.add(new NewContent(userId, item.getUserSegment(), item.getChannel(), type,
+                        item.getText(), item.getImageUrl()));
+            }
+
+            // Rate limiting counts every item as one request for its user, as if submitted on its own
+            Map<String, Integer> requestsByUser = newContent.stream().collect(
+                    Collectors.groupingBy(NewContent::getUserId, Collectors.summingInt(item -> 1)));
+            if (!rateLimiter.allowRequests(requestsByUser)) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body(ErrorUtils.createErrorResponse("RATE_LIMIT_EXCEEDED",
+                                "Too many requests. Please try again later."));
+            }
+
+            List<Content> created = contentService.createContentBatch(newContent);
+
+            // No PENDING WebSocket update: nobody can be subscribed to IDs that are only returned now
+            queueService.pushAllToMainQueue(created);
+
+            List<ContentResponse> responses = created.stream()
+                    .map(content -> ContentResponse.builder()
+                            .contentId(content.getId())
+                            .status(content.getStatus().name())
+                            .contentType(content.getType().name())
+                            .build())
+                    .collect(Collectors.toList());
+
+            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of(
+                    "items", responses,
+                    "count", responses.size()
+            ));
+
+        } catch (Exception e) {
+            log.error("Error submitting content batch", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
+        }
+    }
+
+    // Retrieves content status and moderation results for a given content ID. Responses carry an ETag, so a
+    // poller sending If-None-Match gets 304 Not Modified; decided items may be cached for a while, pending
+    // ones must be revalidated.
     @GetMapping("/{id}")
     public ResponseEntity<?> getContentStatus(@PathVariable UUID id) {
         try {
-            Optional<Content> contentOpt = contentService.getContent(id);
-            
-            if (contentOpt.isEmpty()) {
+            Optional<ContentStatusService.StatusLookup> lookup = contentStatusService.getStatus(id);
+
+            if (lookup.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(ErrorUtils.createErrorResponse("CONTENT_NOT_FOUND", 
                                 "Content with id " + id + " not found"));
             }
 
-            Content content = contentOpt.get();
-            Optional<ModerationResult> resultOpt = moderationService.getModerationResult(id);
-
-            ContentResponse.Scores scores = null;
-            String label = null;
-
-            if (resultOpt.isPresent()) {
-                ModerationResult result = resultOpt.get();
-                scores = ContentResponse.Scores.builder()
-                        .toxicity(result.getToxicityScore())
-                        .hate(result.getHateScore())
-                        .sexual(result.getSexualScore())
-                        .violence(result.getViolenceScore())
-                        .build();
-                label = result.getOverallLabel() != null ? result.getOverallLabel().name() : null;
-            }
-
-            ContentResponse response = ContentResponse.builder()
-                    .contentId(content.getId())
-                    .status(content.getStatus().name())
-                    .scores(scores)
-                    .label(label)
-                    .build();
+            ContentStatusService.StatusLookup status = lookup.get();
+            CacheControl cacheControl = status.isDecided()
+                    ? CacheControl.maxAge(contentStatusService.getMaxAgeSeconds(), TimeUnit.SECONDS).cachePublic()
+                    : CacheControl.noCache();
 
-            return ResponseEntity.ok(response);
+            // A matching If-None-Match is answered with 304 and no body
+            return ResponseEntity.ok()
+                    .eTag(status.getEtag())
+                    .cacheControl(cacheControl)
+                    .body(status.getResponse());
 
         } catch (Exception e) {
             log.error("Error retrieving content status", e);
@@ -0,0 +1,63 @@
+package com.crowdshield.api.controller;
+
+import com.crowdshield.api.dto.ErrorResponse;
+import com.crowdshield.service.StatusStreamService;
+import com.crowdshield.util.ErrorUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/content")
+public class ContentEventsController {
+
+    private final StatusStreamService statusStreamService;
+    private final int maxIds;
+
+    public ContentEventsController(
+            StatusStreamService statusStreamService,
+            @Value("${sse.max-ids:100}") int maxIds) {
+        this.statusStreamService = statusStreamService;
+        this.maxIds = maxIds;
+    }
+
+    // Streams status and verdict events for one content item as Server-Sent Events until it is decided
+    @GetMapping(value = "/{id}/events", produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> streamOne(@PathVariable UUID id) {
+        return stream(List.of(id));
+    }
+
+    // Streams status and verdict events for a comma-separated list of content IDs until all are decided
+    @GetMapping(value = "/events", produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> streamMany(@RequestParam List<UUID> ids) {
+        List<UUID> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinct.isEmpty() || distinct.size() > maxIds) {
+            throw new IllegalArgumentException("ids must list between 1 and " + maxIds + " content IDs");
+        }
+        return stream(distinct);
+    }
+
+    private ResponseEntity<SseEmitter> stream(List<UUID> ids) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                // Ask nginx-style proxies not to buffer the stream
+                .header("X-Accel-Buffering", "no")
+                .body(statusStreamService.open(ids));
+    }
+
+    // Rejects an empty or oversized ID list
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidParameter(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .body(ErrorUtils.createErrorResponse("INVALID_REQUEST", e.getMessage()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.crowdshield.api.controller;
+
+import com.crowdshield.api.dto.ErrorResponse;
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult;
+import com.crowdshield.service.ExportService;
+import com.crowdshield.util.ErrorUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/export")
+public class ExportController {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    // Streams moderation history created in [from, to) as a gzip-compressed NDJSON or CSV download
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String label,
+            @RequestParam(defaultValue = "false") boolean includeText,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // JWT validation is handled by filter
+        // Invalid values throw IllegalArgumentException before anything is streamed
+        ExportService.Format exportFormat = ExportService.Format.valueOf(format.toUpperCase());
+        Content.ContentStatus contentStatus = status != null ? Content.ContentStatus.valueOf(status.toUpperCase()) : null;
+        ModerationResult.ModerationLabel modelLabel = label != null
+                ? ModerationResult.ModerationLabel.valueOf(label.toUpperCase())
+                : null;
+
+        String fileName = "moderation-export-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "."
+                + exportFormat.name().toLowerCase() + ".gz";
+        StreamingResponseBody body = out -> exportService.export(
+                out, exportFormat, from, to, contentStatus, modelLabel, includeText);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .body(body);
+    }
+
+    // Rejects an unknown format, status or label
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidParameter(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .body(ErrorUtils.createErrorResponse("INVALID_REQUEST",
+                        "format must be ndjson or csv; status and label must be valid values"));
+    }
+}
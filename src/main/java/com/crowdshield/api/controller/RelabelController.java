@@ -0,0 +1,64 @@
+package com.crowdshield.api.controller;
+
+import com.crowdshield.api.dto.RelabelJobResponse;
+import com.crowdshield.service.RelabelService;
+import com.crowdshield.util.ErrorUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/relabel")
+public class RelabelController {
+
+    private final RelabelService relabelService;
+
+    public RelabelController(RelabelService relabelService) {
+        this.relabelService = relabelService;
+    }
+
+    // Starts re-evaluating stored scores against the current rules; dryRun counts changes without writing them
+    @PostMapping
+    public ResponseEntity<?> startRelabel(
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // JWT validation is handled by filter
+        try {
+            RelabelService.RelabelJob job = relabelService.startJob(dryRun);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(RelabelJobResponse.from(job));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ErrorUtils.createErrorResponse("RELABEL_IN_PROGRESS", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error starting relabel job", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
+        }
+    }
+
+    // Reports progress of a relabel job started on this node
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getRelabelJob(
+            @PathVariable UUID jobId,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        return relabelService.getJob(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(RelabelJobResponse.from(job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ErrorUtils.createErrorResponse("JOB_NOT_FOUND", "Relabel job " + jobId + " not found")));
+    }
+
+    // Stops a running relabel job after the chunks already in flight
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<?> cancelRelabelJob(
+            @PathVariable UUID jobId,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        return relabelService.cancelJob(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(RelabelJobResponse.from(job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ErrorUtils.createErrorResponse("JOB_NOT_FOUND", "Relabel job " + jobId + " not found")));
+    }
+}
@@ -0,0 +1,61 @@
+package com.crowdshield.api.controller;
+
+import com.crowdshield.service.RetentionService;
+import com.crowdshield.util.ErrorUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/retention")
+public class RetentionController {
+
+    private final RetentionService retentionService;
+
+    public RetentionController(RetentionService retentionService) {
+        this.retentionService = retentionService;
+    }
+
+    // Archives and removes settled content older than the retention window right away
+    @PostMapping("/run")
+    public ResponseEntity<?> runRetention(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // JWT validation is handled by filter
+        try {
+            RetentionService.RetentionRun run = retentionService.run();
+            return ResponseEntity.ok(Map.of(
+                    "cutoff", run.getCutoff(),
+                    "archived", run.getArchived(),
+                    "files", run.getFiles()
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ErrorUtils.createErrorResponse("RETENTION_IN_PROGRESS", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error running retention", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
+        }
+    }
+
+    // Retrieves an archived content item with its moderation results and admin actions
+    @GetMapping("/archive/{contentId}")
+    public ResponseEntity<?> getArchivedContent(
+            @PathVariable UUID contentId,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        try {
+            return retentionService.findArchived(contentId)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(ErrorUtils.createErrorResponse("ARCHIVE_NOT_FOUND", "No archived content with ID " + contentId)));
+        } catch (Exception e) {
+            log.error("Error reading archived content {}", contentId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
+        }
+    }
+}
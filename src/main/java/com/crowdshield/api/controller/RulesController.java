@@ -3,7 +3,9 @@ package com.crowdshield.api.controller;
 import com.crowdshield.api.dto.RuleResponse;
 import com.crowdshield.api.dto.RuleUpdateRequest;
 import com.crowdshield.model.ModerationRule;
+import com.crowdshield.rules.PolicyCompileException;
 import com.crowdshield.service.RuleEngineService;
+import com.crowdshield.service.RuleSet;
 import com.crowdshield.util.ErrorUtils;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
@@ -12,65 +14,92 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/rules")
 public class RulesController {
 
+    private static final Pattern CHANNEL_PATTERN = Pattern.compile("^[A-Za-z0-9_-]{1,64}$");
+
     private final RuleEngineService ruleEngineService;
 
     public RulesController(RuleEngineService ruleEngineService) {
         this.ruleEngineService = ruleEngineService;
     }
 
-    // Retrieves current moderation rule thresholds
+    // Retrieves current moderation rule thresholds for a channel, or the global default when no channel is given
     @GetMapping
-    public ResponseEntity<?> getRules() {
+    public ResponseEntity<?> getRules(@RequestParam(required = false) String channel) {
         try {
-            ModerationRule rule = ruleEngineService.getLatestRule();
+            ModerationRule rule = ruleEngineService.getLatestRule(channel);
+            return ResponseEntity.ok(toResponse(rule));
 
-            RuleResponse response = RuleResponse.builder()
-                    .toxicityThreshold(rule.getToxicityThreshold())
-                    .hateThreshold(rule.getHateThreshold())
-                    .sexualThreshold(rule.getSexualThreshold())
-                    .violenceThreshold(rule.getViolenceThreshold())
-                    .build();
+        } catch (Exception e) {
+            log.error("Error retrieving rules", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
+        }
+    }
 
-            return ResponseEntity.ok(response);
+    // Lists the channels that have their own rule set; all other channels use the global default
+    @GetMapping("/channels")
+    public ResponseEntity<?> getChannels() {
+        try {
+            RuleSet ruleSet = ruleEngineService.getRuleSet();
+            return ResponseEntity.ok(Map.of(
+                    "version", ruleSet.getVersion(),
+                    "channels", new TreeSet<>(ruleSet.getChannels().keySet())));
 
         } catch (Exception e) {
-            log.error("Error retrieving rules", e);
+            log.error("Error retrieving rule channels", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
         }
     }
 
-    // Updates moderation rule thresholds with new values
+    // Updates moderation rule thresholds with new values; a channel gets its own rule on its first update
     @PostMapping
-    public ResponseEntity<?> updateRules(@Valid @RequestBody RuleUpdateRequest request) {
+    public ResponseEntity<?> updateRules(@Valid @RequestBody RuleUpdateRequest request,
+                                         @RequestParam(required = false) String channel) {
+        if (channel != null && !CHANNEL_PATTERN.matcher(channel).matches()) {
+            return ResponseEntity.badRequest()
+                    .body(ErrorUtils.createErrorResponse("INVALID_CHANNEL",
+                            "channel must be 1-64 letters, digits, '_' or '-'"));
+        }
+
         try {
             ModerationRule updated = ruleEngineService.updateRule(
+                    channel,
                     request.getToxicityThreshold(),
                     request.getHateThreshold(),
                     request.getSexualThreshold(),
-                    request.getViolenceThreshold()
+                    request.getViolenceThreshold(),
+                    request.getPolicy()
             );
 
-            RuleResponse response = RuleResponse.builder()
-                    .toxicityThreshold(updated.getToxicityThreshold())
-                    .hateThreshold(updated.getHateThreshold())
-                    .sexualThreshold(updated.getSexualThreshold())
-                    .violenceThreshold(updated.getViolenceThreshold())
-                    .build();
-
-            return ResponseEntity.ok(Map.of("updated", true, "rules", response));
+            return ResponseEntity.ok(Map.of("updated", true, "rules", toResponse(updated)));
 
+        } catch (PolicyCompileException e) {
+            return ResponseEntity.badRequest()
+                    .body(ErrorUtils.createErrorResponse("INVALID_POLICY", e.getMessage()));
         } catch (Exception e) {
             log.error("Error updating rules", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
         }
     }
-}
 
+    private RuleResponse toResponse(ModerationRule rule) {
+        return RuleResponse.builder()
+                .channel(rule.getChannel())
+                .toxicityThreshold(rule.getToxicityThreshold())
+                .hateThreshold(rule.getHateThreshold())
+                .sexualThreshold(rule.getSexualThreshold())
+                .violenceThreshold(rule.getViolenceThreshold())
+                .policy(rule.getPolicy())
+                .build();
+    }
+}
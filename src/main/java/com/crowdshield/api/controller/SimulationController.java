@@ -0,0 +1,65 @@
+package com.crowdshield.api.controller;
+
+import com.crowdshield.api.dto.SimulationRequest;
+import com.crowdshield.api.dto.SimulationResponse;
+import com.crowdshield.rules.CompiledPolicy;
+import com.crowdshield.rules.PolicyCompileException;
+import com.crowdshield.service.RuleEngineService;
+import com.crowdshield.service.SimulationService;
+import com.crowdshield.util.ErrorUtils;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/rules/simulate")
+public class SimulationController {
+
+    private final RuleEngineService ruleEngineService;
+    private final SimulationService simulationService;
+
+    public SimulationController(RuleEngineService ruleEngineService, SimulationService simulationService) {
+        this.ruleEngineService = ruleEngineService;
+        this.simulationService = simulationService;
+    }
+
+    // Shows how stored content would be relabeled under candidate thresholds or policy, without changing anything
+    @PostMapping
+    public ResponseEntity<?> simulate(
+            @Valid @RequestBody SimulationRequest request,
+            @RequestParam(defaultValue = "false") boolean refresh,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        // JWT validation is handled by filter
+        try {
+            CompiledPolicy candidate = ruleEngineService.compileCandidate(
+                    request.getChannel(),
+                    request.getToxicityThreshold(),
+                    request.getHateThreshold(),
+                    request.getSexualThreshold(),
+                    request.getViolenceThreshold(),
+                    request.getPolicy()
+            );
+
+            if (refresh) {
+                simulationService.refresh(true);
+            }
+
+            int sampleSize = request.getSampleSize() != null ? request.getSampleSize() : 20;
+            SimulationResponse response = simulationService.simulate(
+                    ruleEngineService.getRuleSet(), request.getChannel(), candidate, sampleSize);
+
+            return ResponseEntity.ok(response);
+
+        } catch (PolicyCompileException e) {
+            return ResponseEntity.badRequest()
+                    .body(ErrorUtils.createErrorResponse("INVALID_POLICY", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error simulating rules", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ErrorUtils.createErrorResponse("INTERNAL_ERROR", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.crowdshield.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchContentRequest {
+
+    @NotEmpty(message = "items cannot be empty")
+    @Valid
+    private List<Item> items;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        @NotNull(message = "type is required")
+        @Pattern(regexp = "^(TEXT|IMAGE)$", message = "type must be TEXT or IMAGE")
+        private String type;
+
+        @JsonProperty("user_id")
+        private String userId; // Optional - will use anonymous if not provided
+
+        @JsonProperty("user_segment")
+        @Size(max = 64, message = "user_segment must be at most 64 characters")
+        private String userSegment;
+
+        @Size(max = 64, message = "channel must be at most 64 characters")
+        @Pattern(regexp = "^[A-Za-z0-9_-]+$", message = "channel may only contain letters, digits, '_' and '-'")
+        private String channel;
+
+        private String text; // Required for TEXT items
+
+        @Pattern(regexp = "^https?://.*", message = "image_url must be a valid URL")
+        @JsonProperty("image_url")
+        private String imageUrl; // Required for IMAGE items
+    }
+}
@@ -0,0 +1,53 @@
+package com.crowdshield.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOverrideRequest {
+
+    // Explicit items to override; exactly one of contentIds and filter must be given
+    private List<UUID> contentIds;
+
+    @Valid
+    private Filter filter;
+
+    @NotBlank(message = "new_label is required")
+    @Pattern(regexp = "^(SAFE|FLAGGED)$", message = "new_label must be SAFE or FLAGGED")
+    private String newLabel;
+
+    private String note;
+
+    // Selects items by their current state; all given fields must match and at least one is required
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Filter {
+
+        @Pattern(regexp = "^(PENDING|PROCESSING|SAFE|FLAGGED|REVIEW|ERROR)$", message = "status is not a valid status")
+        private String status;
+
+        private String userId;
+
+        @Size(max = 64, message = "channel must be at most 64 characters")
+        private String channel;
+
+        private LocalDateTime createdFrom;
+
+        private LocalDateTime createdTo;
+    }
+}
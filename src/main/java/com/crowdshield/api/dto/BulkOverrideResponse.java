@@ -0,0 +1,54 @@
+package com.crowdshield.api.dto;
+
+import com.crowdshield.service.BulkOverrideService;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOverrideResponse {
+
+    private String newLabel;
+    private Integer updated;
+    private Integer unchanged;
+    private Integer notFound;
+    private Integer chunks;
+    private Boolean hasMore;
+    private String error;
+    private List<Item> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private UUID contentId;
+        private String outcome;
+        private String previousLabel;
+    }
+
+    // Creates the response summary of a bulk override run
+    public static BulkOverrideResponse from(BulkOverrideService.BulkOverrideRun run) {
+        return BulkOverrideResponse.builder()
+                .newLabel(run.getNewLabel())
+                .updated(run.count(BulkOverrideService.Outcome.UPDATED))
+                .unchanged(run.count(BulkOverrideService.Outcome.UNCHANGED))
+                .notFound(run.count(BulkOverrideService.Outcome.NOT_FOUND))
+                .chunks(run.getChunks())
+                .hasMore(run.isHasMore())
+                .error(run.getError())
+                .results(run.getResults().stream()
+                        .map(result -> new Item(result.getContentId(), result.getOutcome().name(),
+                                result.getPreviousLabel()))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+}
@@ -2,6 +2,8 @@ package com.crowdshield.api.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,6 +17,14 @@ public class ContentRequest {
     
     @JsonProperty("user_id")
     private String userId; // Optional - will use anonymous if not provided
+
+    @JsonProperty("user_segment")
+    @Size(max = 64, message = "user_segment must be at most 64 characters")
+    private String userSegment; // Optional - matched by segment rules in the moderation policy
+
+    @Size(max = 64, message = "channel must be at most 64 characters")
+    @Pattern(regexp = "^[A-Za-z0-9_-]+$", message = "channel may only contain letters, digits, '_' and '-'")
+    private String channel; // Optional - selects the channel's rule set instead of the global default
     
     @NotBlank(message = "text cannot be empty")
     private String text;
@@ -2,6 +2,7 @@ package com.crowdshield.api.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import jakarta.validation.constraints.Pattern;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,6 +17,14 @@ public class ImageRequest {
     
     @JsonProperty("user_id")
     private String userId; // Optional - will use anonymous if not provided
+
+    @JsonProperty("user_segment")
+    @Size(max = 64, message = "user_segment must be at most 64 characters")
+    private String userSegment; // Optional - matched by segment rules in the moderation policy
+
+    @Size(max = 64, message = "channel must be at most 64 characters")
+    @Pattern(regexp = "^[A-Za-z0-9_-]+$", message = "channel may only contain letters, digits, '_' and '-'")
+    private String channel; // Optional - selects the channel's rule set instead of the global default
     
     @NotBlank(message = "image_url is required")
     @Pattern(regexp = "^https?://.*", message = "image_url must be a valid URL")
@@ -0,0 +1,44 @@
+package com.crowdshield.api.dto;
+
+import com.crowdshield.service.RelabelService;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelabelJobResponse {
+
+    private UUID jobId;
+    private Long ruleSetVersion;
+    private String state;
+    private Boolean dryRun;
+    private Long scanned;
+    private Long changed;
+    private Long chunks;
+    private String error;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    // Creates a response snapshot of a relabel job's current progress
+    public static RelabelJobResponse from(RelabelService.RelabelJob job) {
+        return RelabelJobResponse.builder()
+                .jobId(job.getId())
+                .ruleSetVersion(job.getRuleSetVersion())
+                .state(job.getState().name())
+                .dryRun(job.isDryRun())
+                .scanned(job.getScanned())
+                .changed(job.getChanged())
+                .chunks(job.getChunks())
+                .error(job.getError())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
@@ -11,9 +11,11 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class RuleResponse {
     
+    private String channel;
     private Float toxicityThreshold;
     private Float hateThreshold;
     private Float sexualThreshold;
     private Float violenceThreshold;
+    private String policy;
 }
 
@@ -2,6 +2,7 @@ package com.crowdshield.api.dto;
 
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -28,5 +29,9 @@ public class RuleUpdateRequest {
     @DecimalMin(value = "0.0", message = "violence_threshold must be between 0.0 and 1.0")
     @DecimalMax(value = "1.0", message = "violence_threshold must be between 0.0 and 1.0")
     private Float violenceThreshold;
+
+    // Optional policy source; when set it replaces the threshold check, an empty string clears it
+    @Size(max = 20000, message = "policy must be at most 20000 characters")
+    private String policy;
 }
 
@@ -0,0 +1,48 @@
+package com.crowdshield.api.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationRequest {
+
+    // Channel whose rule is simulated; null simulates the global default over channels without their own rule
+    @Size(max = 64, message = "channel must be at most 64 characters")
+    @Pattern(regexp = "^[A-Za-z0-9_-]+$", message = "channel may only contain letters, digits, '_' and '-'")
+    private String channel;
+
+    @DecimalMin(value = "0.0", message = "toxicity_threshold must be between 0.0 and 1.0")
+    @DecimalMax(value = "1.0", message = "toxicity_threshold must be between 0.0 and 1.0")
+    private Float toxicityThreshold;
+
+    @DecimalMin(value = "0.0", message = "hate_threshold must be between 0.0 and 1.0")
+    @DecimalMax(value = "1.0", message = "hate_threshold must be between 0.0 and 1.0")
+    private Float hateThreshold;
+
+    @DecimalMin(value = "0.0", message = "sexual_threshold must be between 0.0 and 1.0")
+    @DecimalMax(value = "1.0", message = "sexual_threshold must be between 0.0 and 1.0")
+    private Float sexualThreshold;
+
+    @DecimalMin(value = "0.0", message = "violence_threshold must be between 0.0 and 1.0")
+    @DecimalMax(value = "1.0", message = "violence_threshold must be between 0.0 and 1.0")
+    private Float violenceThreshold;
+
+    // Candidate policy source; takes precedence over the thresholds when set
+    @Size(max = 20000, message = "policy must be at most 20000 characters")
+    private String policy;
+
+    @Min(value = 0, message = "sample_size must be between 0 and 200")
+    @Max(value = 200, message = "sample_size must be between 0 and 200")
+    private Integer sampleSize;
+}
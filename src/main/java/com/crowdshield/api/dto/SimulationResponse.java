@@ -0,0 +1,61 @@
+package com.crowdshield.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationResponse {
+
+    private Long rows;
+    private LabelCounts baseline;
+    private LabelCounts candidate;
+    private Double flagRateDelta;
+    private Long flipped;
+    private Map<String, Long> transitions;
+    private Map<String, CategoryBreakdown> categories;
+    private List<FlippedItem> samples;
+    private LocalDateTime snapshotRefreshedAt;
+    private Long elapsedMs;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LabelCounts {
+        private Long safe;
+        private Long review;
+        private Long flagged;
+        private Double flagRate;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryBreakdown {
+        // Flips attributed to this category because it is the item's highest score
+        private Long stricter;
+        private Long looser;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FlippedItem {
+        private UUID contentId;
+        private String fromLabel;
+        private String toLabel;
+        private ContentResponse.Scores scores;
+    }
+}
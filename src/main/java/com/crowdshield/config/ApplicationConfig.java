@@ -15,6 +15,7 @@ public class ApplicationConfig implements WebMvcConfigurer {
                 .allowedOrigins("*") // Configure with specific origins in production
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("X-Next-Cursor", "X-Estimated-Total")
                 .allowCredentials(false);
     }
 
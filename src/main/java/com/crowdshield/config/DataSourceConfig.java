@@ -0,0 +1,73 @@
+package com.crowdshield.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Configuration
+public class DataSourceConfig {
+
+    // Primary (read-write) pool, configured from spring.datasource as before
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // One pool per replica in read-replicas.urls; a replica that is down never blocks startup
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            @Value("${read-replicas.urls:}") List<String> urls,
+            @Value("${read-replicas.max-lag-ms:5000}") long maxLagMs,
+            @Value("${read-replicas.pool-size:10}") int poolSize,
+            @Value("${read-replicas.connection-timeout-ms:1000}") long connectionTimeoutMs) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(poolSize);
+            replica.setConnectionTimeout(connectionTimeoutMs);
+            replica.setInitializationFailTimeout(-1);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLagMs);
+        if (routing.hasReplicas()) {
+            log.info("Read replica routing enabled - replicas: {}, max_lag_ms: {}", replicas.size(), maxLagMs);
+            routing.checkReplicas();
+        }
+        return routing;
+    }
+
+    // The DataSource used by JPA and JdbcTemplate. With replicas, connections are fetched lazily so the
+    // routing decision sees the transaction's read-only flag; without replicas it is the primary pool itself.
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        if (!replicaRoutingDataSource.hasReplicas()) {
+            return primaryDataSource;
+        }
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
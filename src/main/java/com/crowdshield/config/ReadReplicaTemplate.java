@@ -0,0 +1,41 @@
+package com.crowdshield.config;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+// Runs reads that tolerate replica lag in a read-only transaction routed to a read replica.
+// Inside an existing read-write transaction the read joins it and stays on the primary.
+// Also drives the periodic replica health check.
+@Component
+public class ReadReplicaTemplate {
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReplicaRoutingDataSource routingDataSource;
+
+    public ReadReplicaTemplate(PlatformTransactionManager transactionManager, ReplicaRoutingDataSource routingDataSource) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.routingDataSource = routingDataSource;
+    }
+
+    public <T> T read(Supplier<T> action) {
+        return ReplicaRoutingDataSource.withReplicaPreference(() -> readOnlyTransaction.execute(status -> action.get()));
+    }
+
+    // Re-checks replica lag so lagging or unreachable replicas leave (and rejoin) the rotation
+    @Scheduled(fixedDelayString = "${read-replicas.check-interval-ms:1000}")
+    public void checkReplicas() {
+        if (routingDataSource.hasReplicas()) {
+            routingDataSource.checkReplicas();
+        }
+    }
+
+    // True when replicas are configured, i.e. a read may have been served by one
+    public boolean isEnabled() {
+        return routingDataSource.hasReplicas();
+    }
+}
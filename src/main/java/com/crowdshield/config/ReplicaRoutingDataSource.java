@@ -0,0 +1,142 @@
+package com.crowdshield.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Routes connections between the primary and read replicas. A connection goes to a replica only when the
+ * caller asked for one (see ReadReplicaTemplate) and the current transaction is read-only; everything
+ * else, including all writes, uses the primary. Replicas whose replay lag exceeds the configured limit,
+ * or that cannot be reached, are skipped until the next health check finds them healthy again; with no
+ * healthy replica, reads fall back to the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    // Replay lag in milliseconds; a replica with nothing left to replay has no lag even if the primary is idle
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+                    + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END::bigint";
+
+    private static final ThreadLocal<Boolean> preferReplica = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMs;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, long maxLagMs) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagMs = maxLagMs;
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = chooseReplica();
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            replica.markDown(e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    // Measures each replica's lag and marks it usable or not; called on a schedule
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try {
+                Long lagMs = new JdbcTemplate(replica.dataSource).queryForObject(LAG_SQL, Long.class);
+                replica.lagMs = lagMs != null ? lagMs : 0;
+                boolean healthy = replica.lagMs <= maxLagMs;
+                if (healthy != replica.healthy) {
+                    log.info("Read replica {} is now {} - lag_ms: {}", replica.name(),
+                            healthy ? "in rotation" : "out of rotation", replica.lagMs);
+                }
+                replica.healthy = healthy;
+            } catch (Exception e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+    }
+
+    // Runs an action with replica reads allowed for read-only transactions started inside it
+    static <T> T withReplicaPreference(Supplier<T> action) {
+        Boolean previous = preferReplica.get();
+        preferReplica.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                preferReplica.remove();
+            } else {
+                preferReplica.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    // Round-robin over healthy replicas, or null when this connection must come from the primary
+    private Replica chooseReplica() {
+        if (replicas.isEmpty() || !Boolean.TRUE.equals(preferReplica.get())
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static final class Replica {
+
+        final HikariDataSource dataSource;
+        volatile boolean healthy;
+        volatile long lagMs;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        String name() {
+            return dataSource.getPoolName();
+        }
+
+        void markDown(String reason) {
+            if (healthy) {
+                log.warn("Read replica {} is now out of rotation: {}", name(), reason);
+            }
+            healthy = false;
+        }
+    }
+}
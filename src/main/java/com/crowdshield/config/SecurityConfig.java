@@ -1,5 +1,6 @@
 package com.crowdshield.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -25,6 +26,8 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Streaming responses finish on an async dispatch of a request that was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/admin/auth/login", "/api/content/**", "/actuator/**", 
                                 "/api/info", "/api/rules", "/", "/index.html", "/admin", "/admin.html", 
                                 "/static/**", "/ws/**", "/favicon.png", "/favicon.ico").permitAll()
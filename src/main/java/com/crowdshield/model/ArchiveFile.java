@@ -0,0 +1,33 @@
+package com.crowdshield.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One retention archive: a gzip, column-oriented document holding a batch of content rows with their results
+// and admin actions. Written and read by RetentionService over JDBC; content_archive points into it.
+@Entity
+@Table(name = "content_archive_files")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveFile {
+
+    @Id
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    @Column(name = "row_count", nullable = false)
+    private Integer rowCount;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,38 @@
+package com.crowdshield.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Index entry for a content item moved out of the hot tables: which archive file holds it and at which row
+@Entity
+@Table(name = "content_archive", indexes = {
+        @Index(name = "idx_content_archive_file", columnList = "archive_file")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedContent {
+
+    @Id
+    @Column(name = "content_id")
+    private UUID contentId;
+
+    @Column(name = "archive_file", nullable = false)
+    private String archiveFile;
+
+    @Column(name = "row_index", nullable = false)
+    private Integer rowIndex;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
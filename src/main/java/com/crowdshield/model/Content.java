@@ -12,7 +12,13 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "content")
+@Table(name = "content", indexes = {
+        // Keyset pagination of admin listings on (created_at, id), with and without a status filter
+        @Index(name = "idx_content_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_content_status_created_at_id", columnList = "status, created_at, id"),
+        @Index(name = "idx_content_status_updated_at", columnList = "status, updated_at"),
+        @Index(name = "idx_content_text_hash", columnList = "text_hash")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -30,12 +36,26 @@ public class Content {
     @Enumerated(EnumType.STRING)
     private ContentType type;
 
+    // Inline text of rows created before text_blobs existed; new rows reference their text by text_hash
     @Column(name = "text_content", columnDefinition = "TEXT")
     private String textContent;
 
+    @Column(name = "text_hash", length = 64)
+    private String textHash;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "text_hash", insertable = false, updatable = false)
+    private TextBlob textBlob;
+
     @Column(name = "image_url", columnDefinition = "TEXT")
     private String imageUrl;
 
+    @Column(name = "user_segment", length = 64)
+    private String userSegment;
+
+    @Column(name = "channel", length = 64)
+    private String channel;
+
     @Column(name = "status", nullable = false)
     @Enumerated(EnumType.STRING)
     @Builder.Default
@@ -54,7 +74,16 @@ public class Content {
     }
 
     public enum ContentStatus {
-        PENDING, PROCESSING, SAFE, FLAGGED, ERROR
+        PENDING, PROCESSING, SAFE, FLAGGED, REVIEW, ERROR;
+
+        // Maps a rule engine verdict onto the content status it produces
+        public static ContentStatus fromLabel(ModerationResult.ModerationLabel label) {
+            return switch (label) {
+                case FLAGGED -> FLAGGED;
+                case REVIEW -> REVIEW;
+                case SAFE -> SAFE;
+            };
+        }
     }
 }
 
@@ -11,6 +11,8 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+// One tracking row per content item: the unique constraint on content_id is added by ModerationResultWriter
+// while the context starts, after removing duplicates, rather than by schema generation
 @Entity
 @Table(name = "moderation_jobs")
 @Data
@@ -48,6 +48,10 @@ public class ModerationResult {
     @Column(name = "raw_response", columnDefinition = "jsonb")
     private Map<String, Object> rawResponse;
 
+    // Compact encoding of the provider response, used instead of raw_response under the COMPACT policy
+    @Column(name = "raw_encoded")
+    private byte[] rawEncoded;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -57,7 +61,7 @@ public class ModerationResult {
     private Content content;
 
     public enum ModerationLabel {
-        SAFE, FLAGGED
+        SAFE, FLAGGED, REVIEW
     }
 }
 
@@ -21,6 +21,10 @@ public class ModerationRule {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
+    // Tenant or community the rule applies to; null is the global default
+    @Column(name = "channel", length = 64)
+    private String channel;
+
     @Column(name = "toxicity_threshold", nullable = false)
     @Builder.Default
     private Float toxicityThreshold = 0.7f;
@@ -37,6 +41,9 @@ public class ModerationRule {
     @Builder.Default
     private Float violenceThreshold = 0.6f;
 
+    @Column(name = "policy", columnDefinition = "TEXT")
+    private String policy;
+
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
@@ -0,0 +1,98 @@
+package com.crowdshield.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Denormalized admin listing row: one per content item with its precomputed preview, latest scores and
+// override count. Written only by database triggers (see ModerationViewService), never through JPA.
+@Entity
+@Immutable
+@Table(name = "moderation_view", indexes = {
+        // Keyset pagination of admin listings on (created_at, content_id), with and without a status filter
+        @Index(name = "idx_moderation_view_created_at_id", columnList = "created_at, content_id"),
+        @Index(name = "idx_moderation_view_status_created_at_id", columnList = "status, created_at, content_id"),
+        // Admin search: per-user listing, and joining matching text blobs back to their content
+        @Index(name = "idx_moderation_view_user_created_at_id", columnList = "user_id, created_at, content_id"),
+        @Index(name = "idx_moderation_view_text_hash", columnList = "text_hash"),
+        // Incremental refresh of the rule simulation snapshot
+        @Index(name = "idx_moderation_view_scores_changed_at", columnList = "scores_changed_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ModerationView {
+
+    // Characters of text shown in a preview before it is cut off with "..."
+    public static final int PREVIEW_LENGTH = 100;
+
+    @Id
+    @Column(name = "content_id")
+    private UUID contentId;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Content.ContentType type;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Content.ContentStatus status;
+
+    @Column(name = "channel", length = 64)
+    private String channel;
+
+    @Column(name = "text_hash", length = 64)
+    private String textHash;
+
+    // First PREVIEW_LENGTH characters of text (with "..." when longer) or the image URL
+    @Column(name = "preview", columnDefinition = "TEXT")
+    private String preview;
+
+    @Column(name = "toxicity_score")
+    private Float toxicityScore;
+
+    @Column(name = "hate_score")
+    private Float hateScore;
+
+    @Column(name = "sexual_score")
+    private Float sexualScore;
+
+    @Column(name = "violence_score")
+    private Float violenceScore;
+
+    @Column(name = "overall_label")
+    @Enumerated(EnumType.STRING)
+    private ModerationResult.ModerationLabel label;
+
+    // Creation time of the moderation result the scores come from
+    @Column(name = "result_at")
+    private LocalDateTime resultAt;
+
+    // When the scores or label last changed (new result, relabel or rebuild), by the database clock
+    @Column(name = "scores_changed_at")
+    private LocalDateTime scoresChangedAt;
+
+    @Column(name = "override_count", nullable = false)
+    private int overrideCount;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // True when the content has a moderation result
+    public boolean hasResult() {
+        return label != null;
+    }
+}
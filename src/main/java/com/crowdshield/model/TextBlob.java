@@ -0,0 +1,46 @@
+package com.crowdshield.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// A distinct text body, stored once and referenced by every content row with the same text.
+// Keyed by the SHA-256 of the text; large bodies are kept deflated in compressed_body instead of body.
+@Entity
+@Table(name = "text_blobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TextBlob {
+
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "length", nullable = false)
+    private Integer length;
+
+    // First PREVIEW_LENGTH + 1 characters, so listings never decompress the body
+    @Column(name = "head", columnDefinition = "TEXT", nullable = false)
+    private String head;
+
+    @Column(name = "body", columnDefinition = "TEXT")
+    private String body;
+
+    @Column(name = "compressed_body")
+    private byte[] compressedBody;
+
+    // Full-text search terms of the body, written by TextBlobService when the blob is stored
+    @Column(name = "search_vector", columnDefinition = "tsvector", insertable = false, updatable = false)
+    private String searchVector;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -5,6 +5,23 @@ public class RedisKeys {
     public static final String MAIN_QUEUE = "moderation:jobs";
     public static final String RETRY_QUEUE = "moderation:retry";
     public static final String DLQ = "moderation:dlq";
+
+    // Prefix of each node's in-flight list: main-queue jobs claimed by the node and not yet acknowledged
+    public static final String IN_FLIGHT_PREFIX = "moderation:inflight:";
+
+    // Set of node IDs that have run a worker, and the prefix of each node's expiring heartbeat key; the
+    // in-flight list of a node whose heartbeat has expired is requeued by the others
+    public static final String WORKER_NODES = "moderation:nodes";
+    public static final String HEARTBEAT_PREFIX = "moderation:heartbeat:";
+
+    // Pub/sub channel used to tell every node to reload its in-memory rule snapshot
+    public static final String RULES_CHANGED_CHANNEL = "moderation:rules:changed";
+
+    // Pub/sub channel carrying committed verdicts to submissions waiting for them on any node
+    public static final String VERDICTS_CHANNEL = "moderation:verdicts";
+
+    // Prefix of Idempotency-Key entries; the value is the content ID created under the key
+    public static final String IDEMPOTENCY_PREFIX = "idempotency:";
     
     private RedisKeys() {
         // Utility class
@@ -0,0 +1,11 @@
+package com.crowdshield.repository;
+
+import com.crowdshield.model.ArchivedContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface ArchivedContentRepository extends JpaRepository<ArchivedContent, UUID> {
+}
@@ -4,15 +4,19 @@ import com.crowdshield.model.Content;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ContentRepository extends JpaRepository<Content, UUID> {
-    
+
     List<Content> findByStatus(Content.ContentStatus status);
     
     Page<Content> findByStatus(Content.ContentStatus status, Pageable pageable);
@@ -21,5 +25,13 @@ public interface ContentRepository extends JpaRepository<Content, UUID> {
     
     @Query("SELECT c FROM Content c WHERE c.status = 'FLAGGED' ORDER BY c.createdAt DESC")
     List<Content> findFlaggedContent();
+
+    // Sets the status with a single UPDATE instead of loading and re-saving the entity
+    @Modifying
+    @Transactional
+    @Query("UPDATE Content c SET c.status = :status, c.updatedAt = :updatedAt WHERE c.id = :id")
+    int updateStatus(@Param("id") UUID id,
+                     @Param("status") Content.ContentStatus status,
+                     @Param("updatedAt") LocalDateTime updatedAt);
 }
 
@@ -2,7 +2,11 @@ package com.crowdshield.repository;
 
 import com.crowdshield.model.ModerationJob;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -11,5 +15,19 @@ import java.util.UUID;
 public interface ModerationJobRepository extends JpaRepository<ModerationJob, UUID> {
     
     Optional<ModerationJob> findByContentId(UUID contentId);
+
+    // Inserts or updates the tracking row for a content item in one statement (one row per content_id)
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO moderation_jobs (id, content_id, attempts, queue_name, last_error, created_at, updated_at) "
+            + "VALUES (:id, :contentId, :attempts, :queueName, :lastError, NOW(), NOW()) "
+            + "ON CONFLICT (content_id) DO UPDATE SET attempts = EXCLUDED.attempts, "
+            + "queue_name = EXCLUDED.queue_name, last_error = EXCLUDED.last_error, updated_at = NOW()",
+            nativeQuery = true)
+    int upsertByContentId(@Param("id") UUID id,
+                          @Param("contentId") UUID contentId,
+                          @Param("attempts") int attempts,
+                          @Param("queueName") String queueName,
+                          @Param("lastError") String lastError);
 }
 
@@ -9,6 +9,8 @@ import java.util.Optional;
 @Repository
 public interface ModerationRuleRepository extends JpaRepository<ModerationRule, Integer> {
     
-    Optional<ModerationRule> findTopByOrderByUpdatedAtDesc();
+    Optional<ModerationRule> findTopByChannelIsNullOrderByUpdatedAtDesc();
+
+    Optional<ModerationRule> findTopByChannelOrderByUpdatedAtDesc(String channel);
 }
 
@@ -0,0 +1,42 @@
+package com.crowdshield.repository;
+
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ModerationViewRepository extends JpaRepository<ModerationView, UUID> {
+
+    // Rows after (createdAt, contentId) in descending order; the leading <= bounds the index range scan
+    String KEYSET_AFTER = "v.createdAt <= :createdAt AND (v.createdAt < :createdAt OR v.contentId < :id) ";
+
+    // First page of rows, newest first; Pageable only carries the limit
+    @Query("SELECT v FROM ModerationView v ORDER BY v.createdAt DESC, v.contentId DESC")
+    List<ModerationView> findPage(Pageable limit);
+
+    // Page of rows strictly after the (createdAt, contentId) keyset position, served by idx_moderation_view_created_at_id
+    @Query("SELECT v FROM ModerationView v WHERE " + KEYSET_AFTER + "ORDER BY v.createdAt DESC, v.contentId DESC")
+    List<ModerationView> findPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") UUID id,
+                                       Pageable limit);
+
+    // First page of rows in a status, served by idx_moderation_view_status_created_at_id
+    @Query("SELECT v FROM ModerationView v WHERE v.status = :status ORDER BY v.createdAt DESC, v.contentId DESC")
+    List<ModerationView> findPageByStatus(@Param("status") Content.ContentStatus status, Pageable limit);
+
+    // Page of rows in a status strictly after the (createdAt, contentId) keyset position
+    @Query("SELECT v FROM ModerationView v WHERE v.status = :status AND " + KEYSET_AFTER
+            + "ORDER BY v.createdAt DESC, v.contentId DESC")
+    List<ModerationView> findPageByStatusAfter(@Param("status") Content.ContentStatus status,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") UUID id,
+                                               Pageable limit);
+}
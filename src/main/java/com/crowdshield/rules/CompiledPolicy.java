@@ -0,0 +1,51 @@
+package com.crowdshield.rules;
+
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult;
+
+/*
+ * A moderation policy compiled into a flat array of condition lambdas. Statements are checked in
+ * order and the first one whose condition holds decides the label; if none match the content is SAFE.
+ * Evaluation only reads the primitive score vector and allocates nothing itself; callers that start from
+ * boxed scores build that vector with ScoreVector.of, one four-float array per evaluated item.
+ */
+public final class CompiledPolicy {
+
+    @FunctionalInterface
+    public interface Condition {
+        boolean test(float[] scores, Content.ContentType type, String segment);
+    }
+
+    @FunctionalInterface
+    public interface Operand {
+        float value(float[] scores);
+    }
+
+    private final String source;
+    private final ModerationResult.ModerationLabel[] labels;
+    private final Condition[] conditions;
+
+    CompiledPolicy(String source, ModerationResult.ModerationLabel[] labels, Condition[] conditions) {
+        this.source = source;
+        this.labels = labels;
+        this.conditions = conditions;
+    }
+
+    // Returns the label of the first statement whose condition matches, or SAFE if none do
+    public ModerationResult.ModerationLabel evaluate(float[] scores, Content.ContentType type, String segment) {
+        for (int i = 0; i < conditions.length; i++) {
+            if (conditions[i].test(scores, type, segment)) {
+                return labels[i];
+            }
+        }
+        return ModerationResult.ModerationLabel.SAFE;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int getStatementCount() {
+        return conditions.length;
+    }
+}
@@ -0,0 +1,17 @@
+package com.crowdshield.rules;
+
+public class PolicyCompileException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    public PolicyCompileException(int line, String message) {
+        super("Policy line " + line + ": " + message);
+        this.line = line;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,461 @@
+package com.crowdshield.rules;
+
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Compiles the moderation policy language stored in moderation_rules.policy. One statement per line:
+ *
+ *   flag   if toxicity > 0.7 or hate > 0.6
+ *   review if 0.6 * toxicity + 0.4 * hate >= 0.45
+ *   flag   if type == IMAGE and sexual > 0.3
+ *   flag   if segment in ("kids", "teens") and max(violence, sexual) > 0.2
+ *   safe   if segment == "verified" and toxicity < 0.9
+ *
+ * Actions are flag, review and safe; the first matching statement wins and unmatched content is SAFE.
+ * Conditions combine comparisons with and/or/not and parentheses. Numeric expressions use the score
+ * categories (toxicity, hate, sexual, violence), numbers, + - * /, min(...) and max(...).
+ * type compares against TEXT or IMAGE, segment against quoted strings. '#' starts a comment.
+ */
+public final class PolicyCompiler {
+
+    private static final String[] COMPARATORS = {">=", "<=", "==", "!=", ">", "<"};
+
+    private PolicyCompiler() {
+        // Utility class
+    }
+
+    // Compiles a policy source into a first-match evaluator, throwing PolicyCompileException on errors
+    public static CompiledPolicy compile(String source) {
+        List<ModerationResult.ModerationLabel> labels = new ArrayList<>();
+        List<CompiledPolicy.Condition> conditions = new ArrayList<>();
+
+        String[] lines = source.split("\\R", -1);
+        for (int i = 0; i < lines.length; i++) {
+            String line = stripComment(lines[i]).trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            Parser parser = new Parser(tokenize(line, i + 1), i + 1);
+            labels.add(parser.parseAction());
+            parser.expect("if");
+            conditions.add(parser.parseCondition());
+            parser.expectEnd();
+        }
+
+        if (conditions.isEmpty()) {
+            throw new PolicyCompileException(1, "policy has no statements");
+        }
+
+        return new CompiledPolicy(
+                source,
+                labels.toArray(new ModerationResult.ModerationLabel[0]),
+                conditions.toArray(new CompiledPolicy.Condition[0]));
+    }
+
+    // Renders the four legacy thresholds as the equivalent single-statement policy
+    public static String thresholdPolicy(float toxicity, float hate, float sexual, float violence) {
+        return "flag if toxicity > " + number(toxicity)
+                + " or hate > " + number(hate)
+                + " or sexual > " + number(sexual)
+                + " or violence > " + number(violence);
+    }
+
+    // Plain decimal notation; Float.toString switches to 5.0E-4 style below 1e-3, which the tokenizer rejects
+    private static String number(float value) {
+        return new BigDecimal(Float.toString(value)).stripTrailingZeros().toPlainString();
+    }
+
+    private static String stripComment(String line) {
+        boolean inString = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                inString = !inString;
+            } else if (c == '#' && !inString) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    private static List<Token> tokenize(String line, int lineNumber) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < line.length() && Character.isDigit(line.charAt(i + 1)))) {
+                int start = i;
+                while (i < line.length() && (Character.isDigit(line.charAt(i)) || line.charAt(i) == '.')) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.NUMBER, line.substring(start, i)));
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < line.length() && (Character.isLetterOrDigit(line.charAt(i)) || line.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.IDENT, line.substring(start, i)));
+            } else if (c == '"') {
+                int end = line.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new PolicyCompileException(lineNumber, "unterminated string");
+                }
+                tokens.add(new Token(TokenType.STRING, line.substring(i + 1, end)));
+                i = end + 1;
+            } else {
+                String symbol = null;
+                for (String comparator : COMPARATORS) {
+                    if (line.startsWith(comparator, i)) {
+                        symbol = comparator;
+                        break;
+                    }
+                }
+                if (symbol == null && "+-*/(),".indexOf(c) >= 0) {
+                    symbol = String.valueOf(c);
+                }
+                if (symbol == null) {
+                    throw new PolicyCompileException(lineNumber, "unexpected character '" + c + "'");
+                }
+                tokens.add(new Token(TokenType.SYMBOL, symbol));
+                i += symbol.length();
+            }
+        }
+        return tokens;
+    }
+
+    private enum TokenType {
+        NUMBER, IDENT, STRING, SYMBOL
+    }
+
+    private record Token(TokenType type, String text) {
+    }
+
+    // Recursive-descent parser that builds lambdas directly instead of an intermediate syntax tree
+    private static final class Parser {
+
+        private final List<Token> tokens;
+        private final int line;
+        private int pos;
+
+        Parser(List<Token> tokens, int line) {
+            this.tokens = tokens;
+            this.line = line;
+        }
+
+        ModerationResult.ModerationLabel parseAction() {
+            Token token = next("an action (flag, review or safe)");
+            return switch (token.text().toLowerCase(Locale.ROOT)) {
+                case "flag" -> ModerationResult.ModerationLabel.FLAGGED;
+                case "review" -> ModerationResult.ModerationLabel.REVIEW;
+                case "safe" -> ModerationResult.ModerationLabel.SAFE;
+                default -> throw error("expected flag, review or safe but found '" + token.text() + "'");
+            };
+        }
+
+        CompiledPolicy.Condition parseCondition() {
+            CompiledPolicy.Condition left = parseAnd();
+            while (acceptKeyword("or")) {
+                CompiledPolicy.Condition a = left;
+                CompiledPolicy.Condition b = parseAnd();
+                left = (s, t, g) -> a.test(s, t, g) || b.test(s, t, g);
+            }
+            return left;
+        }
+
+        private CompiledPolicy.Condition parseAnd() {
+            CompiledPolicy.Condition left = parseUnary();
+            while (acceptKeyword("and")) {
+                CompiledPolicy.Condition a = left;
+                CompiledPolicy.Condition b = parseUnary();
+                left = (s, t, g) -> a.test(s, t, g) && b.test(s, t, g);
+            }
+            return left;
+        }
+
+        private CompiledPolicy.Condition parseUnary() {
+            if (acceptKeyword("not")) {
+                CompiledPolicy.Condition inner = parseUnary();
+                return (s, t, g) -> !inner.test(s, t, g);
+            }
+            return parsePrimary();
+        }
+
+        private CompiledPolicy.Condition parsePrimary() {
+            if (peekIsKeyword("type")) {
+                return parseTypeTest();
+            }
+            if (peekIsKeyword("segment")) {
+                return parseSegmentTest();
+            }
+            if (peekIs("(")) {
+                // "(" opens either a grouped condition or a parenthesised arithmetic operand
+                int mark = pos;
+                try {
+                    return parseComparison();
+                } catch (PolicyCompileException e) {
+                    pos = mark;
+                }
+                expect("(");
+                CompiledPolicy.Condition inner = parseCondition();
+                expect(")");
+                return inner;
+            }
+            return parseComparison();
+        }
+
+        private CompiledPolicy.Condition parseTypeTest() {
+            pos++;
+            boolean equal = parseEquality();
+            Token token = next("TEXT or IMAGE");
+            Content.ContentType expected;
+            try {
+                expected = Content.ContentType.valueOf(token.text().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw error("unknown content type '" + token.text() + "', expected TEXT or IMAGE");
+            }
+            return equal ? (s, t, g) -> t == expected : (s, t, g) -> t != expected;
+        }
+
+        private CompiledPolicy.Condition parseSegmentTest() {
+            pos++;
+            if (acceptKeyword("in")) {
+                expect("(");
+                List<String> values = new ArrayList<>();
+                do {
+                    values.add(parseSegmentValue());
+                } while (accept(","));
+                expect(")");
+                String[] segments = values.toArray(new String[0]);
+                return (s, t, g) -> {
+                    for (String segment : segments) {
+                        if (segment.equals(g)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+            boolean equal = parseEquality();
+            String expected = parseSegmentValue();
+            return equal ? (s, t, g) -> expected.equals(g) : (s, t, g) -> !expected.equals(g);
+        }
+
+        private String parseSegmentValue() {
+            Token token = next("a segment name");
+            if (token.type() != TokenType.STRING && token.type() != TokenType.IDENT) {
+                throw error("expected a segment name but found '" + token.text() + "'");
+            }
+            return token.text();
+        }
+
+        private boolean parseEquality() {
+            if (accept("==")) return true;
+            if (accept("!=")) return false;
+            throw error("expected == or !=");
+        }
+
+        private CompiledPolicy.Condition parseComparison() {
+            Operand left = parseSum();
+            Token op = next("a comparison operator");
+            Operand right = parseSum();
+            CompiledPolicy.Operand a = left.fn;
+            CompiledPolicy.Operand b = right.fn;
+
+            // Compare against a folded constant directly, which covers the common "category > threshold" case
+            if (right.constant) {
+                float c = right.value;
+                return switch (op.text()) {
+                    case ">" -> (s, t, g) -> a.value(s) > c;
+                    case ">=" -> (s, t, g) -> a.value(s) >= c;
+                    case "<" -> (s, t, g) -> a.value(s) < c;
+                    case "<=" -> (s, t, g) -> a.value(s) <= c;
+                    case "==" -> (s, t, g) -> a.value(s) == c;
+                    case "!=" -> (s, t, g) -> a.value(s) != c;
+                    default -> throw error("expected a comparison operator but found '" + op.text() + "'");
+                };
+            }
+            return switch (op.text()) {
+                case ">" -> (s, t, g) -> a.value(s) > b.value(s);
+                case ">=" -> (s, t, g) -> a.value(s) >= b.value(s);
+                case "<" -> (s, t, g) -> a.value(s) < b.value(s);
+                case "<=" -> (s, t, g) -> a.value(s) <= b.value(s);
+                case "==" -> (s, t, g) -> a.value(s) == b.value(s);
+                case "!=" -> (s, t, g) -> a.value(s) != b.value(s);
+                default -> throw error("expected a comparison operator but found '" + op.text() + "'");
+            };
+        }
+
+        private Operand parseSum() {
+            Operand left = parseProduct();
+            while (peekIs("+") || peekIs("-")) {
+                char op = next("an operator").text().charAt(0);
+                left = Operand.combine(left, parseProduct(), op);
+            }
+            return left;
+        }
+
+        private Operand parseProduct() {
+            Operand left = parseFactor();
+            while (peekIs("*") || peekIs("/")) {
+                char op = next("an operator").text().charAt(0);
+                left = Operand.combine(left, parseFactor(), op);
+            }
+            return left;
+        }
+
+        private Operand parseFactor() {
+            Token token = next("a number, category or '('");
+            if (token.type() == TokenType.NUMBER) {
+                try {
+                    return Operand.constant(Float.parseFloat(token.text()));
+                } catch (NumberFormatException e) {
+                    throw error("invalid number '" + token.text() + "'");
+                }
+            }
+            if (token.type() == TokenType.SYMBOL && token.text().equals("-")) {
+                return Operand.combine(Operand.constant(0f), parseFactor(), '-');
+            }
+            if (token.type() == TokenType.SYMBOL && token.text().equals("(")) {
+                Operand inner = parseSum();
+                expect(")");
+                return inner;
+            }
+            if (token.type() == TokenType.IDENT) {
+                String name = token.text().toLowerCase(Locale.ROOT);
+                if (name.equals("min") || name.equals("max")) {
+                    return parseMinMax(name.equals("max"));
+                }
+                int index = ScoreVector.indexOf(name);
+                if (index < 0) {
+                    throw error("unknown category '" + token.text() + "', expected one of " + ScoreVector.CATEGORIES);
+                }
+                return Operand.of(s -> s[index]);
+            }
+            throw error("expected a number, category or '(' but found '" + token.text() + "'");
+        }
+
+        private Operand parseMinMax(boolean max) {
+            expect("(");
+            Operand result = parseSum();
+            int arguments = 1;
+            while (accept(",")) {
+                result = Operand.combine(result, parseSum(), max ? 'M' : 'm');
+                arguments++;
+            }
+            expect(")");
+            if (arguments < 2) {
+                throw error((max ? "max" : "min") + " needs at least two arguments");
+            }
+            return result;
+        }
+
+        void expect(String text) {
+            Token token = next("'" + text + "'");
+            if (!token.text().equalsIgnoreCase(text)) {
+                throw error("expected '" + text + "' but found '" + token.text() + "'");
+            }
+        }
+
+        void expectEnd() {
+            if (pos < tokens.size()) {
+                throw error("unexpected '" + tokens.get(pos).text() + "'");
+            }
+        }
+
+        private boolean accept(String symbol) {
+            if (peekIs(symbol)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            if (peekIsKeyword(keyword)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean peekIs(String symbol) {
+            return pos < tokens.size()
+                    && tokens.get(pos).type() == TokenType.SYMBOL
+                    && tokens.get(pos).text().equals(symbol);
+        }
+
+        private boolean peekIsKeyword(String keyword) {
+            return pos < tokens.size()
+                    && tokens.get(pos).type() == TokenType.IDENT
+                    && tokens.get(pos).text().equalsIgnoreCase(keyword);
+        }
+
+        private Token next(String expected) {
+            if (pos >= tokens.size()) {
+                throw error("expected " + expected + " but the line ended");
+            }
+            return tokens.get(pos++);
+        }
+
+        private PolicyCompileException error(String message) {
+            return new PolicyCompileException(line, message);
+        }
+    }
+
+    // Numeric operand during compilation; constants are tracked so arithmetic on them is folded away
+    private static final class Operand {
+
+        final CompiledPolicy.Operand fn;
+        final boolean constant;
+        final float value;
+
+        private Operand(CompiledPolicy.Operand fn, boolean constant, float value) {
+            this.fn = fn;
+            this.constant = constant;
+            this.value = value;
+        }
+
+        static Operand constant(float value) {
+            return new Operand(s -> value, true, value);
+        }
+
+        static Operand of(CompiledPolicy.Operand fn) {
+            return new Operand(fn, false, 0f);
+        }
+
+        static Operand combine(Operand left, Operand right, char op) {
+            if (left.constant && right.constant) {
+                return constant(apply(op, left.value, right.value));
+            }
+            CompiledPolicy.Operand a = left.fn;
+            CompiledPolicy.Operand b = right.fn;
+            return switch (op) {
+                case '+' -> of(s -> a.value(s) + b.value(s));
+                case '-' -> of(s -> a.value(s) - b.value(s));
+                case '*' -> of(s -> a.value(s) * b.value(s));
+                case '/' -> of(s -> a.value(s) / b.value(s));
+                case 'M' -> of(s -> Math.max(a.value(s), b.value(s)));
+                default -> of(s -> Math.min(a.value(s), b.value(s)));
+            };
+        }
+
+        private static float apply(char op, float a, float b) {
+            return switch (op) {
+                case '+' -> a + b;
+                case '-' -> a - b;
+                case '*' -> a * b;
+                case '/' -> a / b;
+                case 'M' -> Math.max(a, b);
+                default -> Math.min(a, b);
+            };
+        }
+    }
+}
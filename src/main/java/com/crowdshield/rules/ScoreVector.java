@@ -0,0 +1,43 @@
+package com.crowdshield.rules;
+
+import com.crowdshield.api.dto.ModerationScores;
+
+import java.util.List;
+
+public final class ScoreVector {
+
+    public static final int TOXICITY = 0;
+    public static final int HATE = 1;
+    public static final int SEXUAL = 2;
+    public static final int VIOLENCE = 3;
+
+    public static final int SIZE = 4;
+
+    // Category names as written in policies, indexed by their position in the vector
+    public static final List<String> CATEGORIES = List.of("toxicity", "hate", "sexual", "violence");
+
+    private ScoreVector() {
+        // Utility class
+    }
+
+    // Copies the four category scores into a primitive vector, treating missing scores as 0
+    public static float[] of(ModerationScores scores) {
+        return of(scores.getToxicityScore(), scores.getHateScore(),
+                scores.getSexualScore(), scores.getViolenceScore());
+    }
+
+    // Builds a primitive vector from boxed scores, treating missing scores as 0
+    public static float[] of(Float toxicity, Float hate, Float sexual, Float violence) {
+        float[] vector = new float[SIZE];
+        vector[TOXICITY] = toxicity != null ? toxicity : 0f;
+        vector[HATE] = hate != null ? hate : 0f;
+        vector[SEXUAL] = sexual != null ? sexual : 0f;
+        vector[VIOLENCE] = violence != null ? violence : 0f;
+        return vector;
+    }
+
+    // Returns the vector index for a category name, or -1 if the name is unknown
+    public static int indexOf(String category) {
+        return CATEGORIES.indexOf(category);
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -17,17 +18,15 @@ public class AdminService {
 
     private final ContentRepository contentRepository;
     private final AdminActionRepository adminActionRepository;
+    private final VerdictWaitService verdictWaitService;
 
     public AdminService(
             ContentRepository contentRepository,
-            AdminActionRepository adminActionRepository) {
+            AdminActionRepository adminActionRepository,
+            VerdictWaitService verdictWaitService) {
         this.contentRepository = contentRepository;
         this.adminActionRepository = adminActionRepository;
-    }
-
-    // Retrieves all content items that have been flagged as inappropriate
-    public List<Content> getFlaggedContent() {
-        return contentRepository.findFlaggedContent();
+        this.verdictWaitService = verdictWaitService;
     }
 
     // Allows admin to manually override moderation decision and records the action
@@ -36,7 +35,10 @@ public class AdminService {
         Content content = contentRepository.findById(contentId)
                 .orElseThrow(() -> new RuntimeException("Content not found: " + contentId));
 
-        String previousLabel = content.getStatus() == Content.ContentStatus.FLAGGED ? "FLAGGED" : "SAFE";
+        String previousLabel = content.getStatus() == Content.ContentStatus.FLAGGED
+                || content.getStatus() == Content.ContentStatus.REVIEW
+                ? content.getStatus().name()
+                : "SAFE";
         
         Content.ContentStatus newStatus = "FLAGGED".equals(newLabel) 
                 ? Content.ContentStatus.FLAGGED 
@@ -54,7 +56,9 @@ public class AdminService {
                 .build();
 
         AdminAction saved = adminActionRepository.save(action);
-        
+        // Sent once this transaction commits
+        verdictWaitService.publishStatuses(Map.of(contentId, newStatus));
+
         log.info("Admin override - content_id: {}, admin_id: {}, previous: {}, new: {}", 
                 contentId, adminId, previousLabel, newLabel);
 
@@ -0,0 +1,241 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.Content;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/*
+ * Admin overrides for many items at once, given as a list of IDs or as a filter. Items are processed in
+ * chunks of bulk-override.chunk-size, each in its own transaction with a single statement: the matching
+ * rows are locked, their status is set with one UPDATE and the audit rows are inserted from the same
+ * result set. Items already in the target status are left untouched and get no audit row, so re-running
+ * a filter after a partial run only picks up what is left. Each committed chunk's status changes are
+ * published on the verdict channel.
+ */
+@Slf4j
+@Service
+public class BulkOverrideService {
+
+    // %s selects the chunk's candidate rows (id, status); placeholders after it: new status (x2), audit row IDs
+    // (a uuid[] with one ID per possible row, generated here rather than with gen_random_uuid(), which needs
+    // PostgreSQL 13), admin, label, note
+    private static final String OVERRIDE_SQL_TEMPLATE =
+            "WITH found AS (%s FOR UPDATE), "
+                    + "updated AS (UPDATE content c SET status = ?, updated_at = NOW() FROM found f "
+                    + "WHERE c.id = f.id AND f.status <> ? RETURNING c.id, f.status AS previous_status), "
+                    + "audited AS (INSERT INTO admin_actions (id, content_id, admin_id, previous_label, new_label, note, created_at) "
+                    + "SELECT (CAST(? AS uuid[]))[u.n], u.id, ?, "
+                    + "CASE WHEN u.previous_status IN ('FLAGGED', 'REVIEW') THEN u.previous_status ELSE 'SAFE' END, "
+                    + "?, ?, NOW() FROM (SELECT id, previous_status, row_number() OVER () AS n FROM updated) u "
+                    + "RETURNING content_id, previous_label) "
+                    + "SELECT f.id, a.previous_label FROM found f LEFT JOIN audited a ON a.content_id = f.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final VerdictWaitService verdictWaitService;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public BulkOverrideService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            VerdictWaitService verdictWaitService,
+            @Value("${bulk-override.chunk-size:500}") int chunkSize,
+            @Value("${bulk-override.max-items:10000}") int maxItems) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.verdictWaitService = verdictWaitService;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    // Overrides the listed items; duplicates are ignored. Throws IllegalArgumentException above max-items.
+    public BulkOverrideRun overrideIds(List<UUID> contentIds, String adminId, String newLabel, String note) {
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(contentIds));
+        if (ids.size() > maxItems) {
+            throw new IllegalArgumentException("At most " + maxItems + " content IDs per request");
+        }
+
+        BulkOverrideRun run = new BulkOverrideRun(newLabel);
+        for (int start = 0; start < ids.size() && run.error == null; start += chunkSize) {
+            List<UUID> chunk = ids.subList(start, Math.min(start + chunkSize, ids.size()));
+            String in = "(" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+            Map<UUID, String> found = runChunk(run, "SELECT id, status FROM content WHERE id IN " + in + " ORDER BY id",
+                    new ArrayList<>(chunk), adminId, newLabel, note);
+            if (found == null) {
+                break;
+            }
+            for (UUID id : chunk) {
+                if (!found.containsKey(id)) {
+                    run.results.add(new ItemResult(id, Outcome.NOT_FOUND, null));
+                }
+            }
+        }
+
+        log.info("Bulk override by IDs - admin_id: {}, new: {}, requested: {}, updated: {}, chunks: {}",
+                adminId, newLabel, ids.size(), run.count(Outcome.UPDATED), run.chunks);
+        return run;
+    }
+
+    // Overrides up to max-items items matching every given filter, oldest first; hasMore reports whether
+    // matching items are left for another request. Throws IllegalArgumentException when no filter is given.
+    public BulkOverrideRun overrideMatching(Content.ContentStatus status, String userId, String channel,
+                                            LocalDateTime createdFrom, LocalDateTime createdTo,
+                                            String adminId, String newLabel, String note) {
+        StringBuilder where = new StringBuilder();
+        List<Object> filterArgs = new ArrayList<>();
+        if (status != null) {
+            where.append(" AND status = ?");
+            filterArgs.add(status.name());
+        }
+        if (userId != null && !userId.isBlank()) {
+            where.append(" AND user_id = ?");
+            filterArgs.add(userId);
+        }
+        if (channel != null && !channel.isBlank()) {
+            where.append(" AND channel = ?");
+            filterArgs.add(channel);
+        }
+        if (createdFrom != null) {
+            where.append(" AND created_at >= ?");
+            filterArgs.add(Timestamp.valueOf(createdFrom));
+        }
+        if (createdTo != null) {
+            where.append(" AND created_at < ?");
+            filterArgs.add(Timestamp.valueOf(createdTo));
+        }
+        if (filterArgs.isEmpty()) {
+            throw new IllegalArgumentException("filter needs at least one of status, userId, channel, createdFrom, createdTo");
+        }
+
+        // Items already overridden leave the filter, so each chunk simply takes the next matching rows
+        String select = "SELECT id, status FROM content WHERE status <> ?" + where + " ORDER BY created_at, id LIMIT ?";
+
+        BulkOverrideRun run = new BulkOverrideRun(newLabel);
+        int processed = 0;
+        while (processed < maxItems) {
+            int limit = Math.min(chunkSize, maxItems - processed);
+            List<Object> args = new ArrayList<>();
+            args.add(statusFor(newLabel).name());
+            args.addAll(filterArgs);
+            args.add(limit);
+
+            Map<UUID, String> found = runChunk(run, select, args, adminId, newLabel, note);
+            if (found == null) {
+                break;
+            }
+            processed += found.size();
+            if (found.size() < limit) {
+                break;
+            }
+        }
+        run.hasMore = run.error == null && processed >= maxItems;
+
+        log.info("Bulk override by filter - admin_id: {}, new: {}, updated: {}, chunks: {}, has_more: {}",
+                adminId, newLabel, run.count(Outcome.UPDATED), run.chunks, run.hasMore);
+        return run;
+    }
+
+    // Runs one chunk in its own transaction and records its outcomes; returns found ID -> previous label
+    // (null when unchanged), or null when the chunk failed and the run must stop
+    private Map<UUID, String> runChunk(BulkOverrideRun run, String select, List<Object> selectArgs,
+                                       String adminId, String newLabel, String note) {
+        Content.ContentStatus targetStatus = statusFor(newLabel);
+        String newStatus = targetStatus.name();
+        List<Object> args = new ArrayList<>(selectArgs);
+        args.add(newStatus);
+        args.add(newStatus);
+        args.add(auditIds());
+        args.add(adminId);
+        args.add(newLabel);
+        args.add(note);
+
+        try {
+            Map<UUID, String> found = transactionTemplate.execute(status -> {
+                Map<UUID, String> rows = new HashMap<>();
+                jdbcTemplate.query(String.format(OVERRIDE_SQL_TEMPLATE, select), rs -> {
+                    rows.put(rs.getObject(1, UUID.class), rs.getString(2));
+                }, args.toArray());
+                return rows;
+            });
+            run.chunks++;
+            Map<UUID, Content.ContentStatus> changed = new HashMap<>();
+            found.forEach((id, previousLabel) -> {
+                if (previousLabel != null) {
+                    run.results.add(new ItemResult(id, Outcome.UPDATED, previousLabel));
+                    changed.put(id, targetStatus);
+                } else {
+                    run.results.add(new ItemResult(id, Outcome.UNCHANGED, null));
+                }
+            });
+            verdictWaitService.publishStatuses(changed);
+            return found;
+        } catch (Exception e) {
+            run.error = e.getMessage();
+            log.error("Bulk override chunk failed after {} chunks - admin_id: {}", run.chunks, adminId, e);
+            return null;
+        }
+    }
+
+    // A uuid[] literal with an audit row ID for every row a chunk can update
+    private String auditIds() {
+        StringJoiner ids = new StringJoiner(",", "{", "}");
+        for (int i = 0; i < chunkSize; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        return ids.toString();
+    }
+
+    // Same label to status mapping as a single override
+    private static Content.ContentStatus statusFor(String newLabel) {
+        return "FLAGGED".equals(newLabel) ? Content.ContentStatus.FLAGGED : Content.ContentStatus.SAFE;
+    }
+
+    public enum Outcome {
+        UPDATED, UNCHANGED, NOT_FOUND
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ItemResult {
+        private final UUID contentId;
+        private final Outcome outcome;
+        private final String previousLabel;
+    }
+
+    // Summary of one bulk override; chunks committed before an error stay applied
+    @Getter
+    public static class BulkOverrideRun {
+        private final String newLabel;
+        private final List<ItemResult> results = new ArrayList<>();
+        private int chunks;
+        private boolean hasMore;
+        private String error;
+
+        BulkOverrideRun(String newLabel) {
+            this.newLabel = newLabel;
+        }
+
+        public int count(Outcome outcome) {
+            return (int) results.stream().filter(result -> result.getOutcome() == outcome).count();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.ModerationView;
+import lombok.Value;
+
+import java.util.List;
+
+// One keyset page of admin listing rows; nextCursor is null on the last page
+@Value
+public class ContentPreviewPage {
+
+    List<ModerationView> items;
+    String nextCursor;
+    long estimatedTotal;
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,260 @@
+package com.crowdshield.service;
+
+import com.crowdshield.config.ReadReplicaTemplate;
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult;
+import com.crowdshield.model.ModerationView;
+import com.crowdshield.util.PageCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Admin search over moderated content. Text is matched through a GIN index on text_blobs.search_vector,
+ * so each distinct body is indexed once however many items repeat it; matching blobs are joined back to
+ * their items through moderation_view.text_hash, where user, status and score filters apply. Every query
+ * term matches as a prefix, and a quoted query matches the words as a phrase. Results come newest first
+ * with the same keyset cursors as the admin listings. Content stored before text blobs existed keeps its
+ * text inline; install() moves it into text_blobs so it becomes searchable like everything else.
+ */
+@Slf4j
+@Service
+public class ContentSearchService {
+
+    private static final String CREATE_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_text_blobs_search_vector ON text_blobs USING GIN (search_vector)";
+
+    // Finds the remaining inline texts without scanning content once they are all migrated
+    private static final String CREATE_LEGACY_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_content_inline_text ON content(id) "
+                    + "WHERE text_hash IS NULL AND text_content IS NOT NULL";
+
+    private static final String LEGACY_TEXTS_SQL =
+            "SELECT id, text_content FROM content WHERE text_hash IS NULL AND text_content IS NOT NULL "
+                    + "AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String MOVE_TEXT_SQL =
+            "UPDATE content SET text_hash = ?, text_content = NULL WHERE id = ? AND text_hash IS NULL";
+
+    private static final String SET_VIEW_HASH_SQL =
+            "UPDATE moderation_view SET text_hash = ? WHERE content_id = ?";
+
+    private static final String MISSING_VECTORS_SQL =
+            "SELECT hash FROM text_blobs WHERE search_vector IS NULL LIMIT ?";
+
+    private static final String SET_VECTOR_SQL =
+            "UPDATE text_blobs SET search_vector = " + TextBlobService.SEARCH_VECTOR_SQL + " WHERE hash = ?";
+
+    private static final String SELECT_COLUMNS =
+            "SELECT v.content_id, v.user_id, v.type, v.status, v.channel, v.text_hash, v.preview, v.toxicity_score, "
+                    + "v.hate_score, v.sexual_score, v.violence_score, v.overall_label, v.result_at, v.override_count, "
+                    + "v.created_at, v.updated_at FROM moderation_view v ";
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    // Letters and digits only, so user input never reaches the tsquery parser as syntax
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    // Score categories that can be range-filtered, mapped to their moderation_view columns
+    private static final Map<String, String> SCORE_COLUMNS = Map.of(
+            "toxicity", "v.toxicity_score",
+            "hate", "v.hate_score",
+            "sexual", "v.sexual_score",
+            "violence", "v.violence_score");
+
+    private static final RowMapper<ModerationView> ROW_MAPPER = (rs, rowNum) -> {
+        String label = rs.getString("overall_label");
+        Timestamp resultAt = rs.getTimestamp("result_at");
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        return ModerationView.builder()
+                .contentId(rs.getObject("content_id", UUID.class))
+                .userId(rs.getString("user_id"))
+                .type(Content.ContentType.valueOf(rs.getString("type")))
+                .status(Content.ContentStatus.valueOf(rs.getString("status")))
+                .channel(rs.getString("channel"))
+                .textHash(rs.getString("text_hash"))
+                .preview(rs.getString("preview"))
+                .toxicityScore(rs.getObject("toxicity_score", Float.class))
+                .hateScore(rs.getObject("hate_score", Float.class))
+                .sexualScore(rs.getObject("sexual_score", Float.class))
+                .violenceScore(rs.getObject("violence_score", Float.class))
+                .label(label != null ? ModerationResult.ModerationLabel.valueOf(label) : null)
+                .resultAt(resultAt != null ? resultAt.toLocalDateTime() : null)
+                .overrideCount(rs.getInt("override_count"))
+                .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+                .build();
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadReplicaTemplate replicaReads;
+    private final TextBlobService textBlobService;
+    private final TransactionTemplate writeTransaction;
+
+    public ContentSearchService(JdbcTemplate jdbcTemplate, ReadReplicaTemplate replicaReads,
+                                TextBlobService textBlobService, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaReads = replicaReads;
+        this.textBlobService = textBlobService;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // Creates the search index if missing, moves texts stored inline into text_blobs and fills in search terms
+    // for blobs stored before search existed
+    @EventListener(ApplicationReadyEvent.class)
+    public void install() {
+        try {
+            jdbcTemplate.execute(CREATE_INDEX_SQL);
+            jdbcTemplate.execute(CREATE_LEGACY_INDEX_SQL);
+            migrateInlineTexts();
+
+            int indexed = 0;
+            List<String> hashes;
+            do {
+                hashes = jdbcTemplate.queryForList(MISSING_VECTORS_SQL, String.class, BACKFILL_BATCH_SIZE);
+                List<Object[]> updates = new ArrayList<>(hashes.size());
+                for (String hash : hashes) {
+                    // Compressed bodies can only be read here, so every body goes through the blob service
+                    updates.add(new Object[]{textBlobService.load(hash).orElse(""), hash});
+                }
+                jdbcTemplate.batchUpdate(SET_VECTOR_SQL, updates);
+                indexed += hashes.size();
+            } while (hashes.size() == BACKFILL_BATCH_SIZE);
+
+            if (indexed > 0) {
+                log.info("Indexed stored texts for search - blobs: {}", indexed);
+            }
+        } catch (Exception e) {
+            log.error("Failed to install content search index: {}", e.getMessage());
+        }
+    }
+
+    // Moves inline texts into text_blobs in batches, pointing their content and moderation_view rows at the blob.
+    // Each batch commits on its own, so the migration resumes where it stopped after a restart.
+    private void migrateInlineTexts() {
+        int migrated = 0;
+        UUID after = new UUID(0, 0);
+        while (true) {
+            List<UUID> ids = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            jdbcTemplate.query(LEGACY_TEXTS_SQL, rs -> {
+                ids.add(rs.getObject(1, UUID.class));
+                texts.add(rs.getString(2));
+            }, after, BACKFILL_BATCH_SIZE);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            writeTransaction.executeWithoutResult(status -> {
+                List<String> hashes = textBlobService.storeAll(texts);
+                List<Object[]> updates = new ArrayList<>(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    updates.add(new Object[]{hashes.get(i), ids.get(i)});
+                }
+                jdbcTemplate.batchUpdate(MOVE_TEXT_SQL, updates);
+                jdbcTemplate.batchUpdate(SET_VIEW_HASH_SQL, updates);
+            });
+            migrated += ids.size();
+            after = ids.get(ids.size() - 1);
+            if (ids.size() < BACKFILL_BATCH_SIZE) {
+                break;
+            }
+        }
+
+        if (migrated > 0) {
+            log.info("Moved inline texts into text blobs - items: {}", migrated);
+        }
+    }
+
+    // Returns one keyset page of items matching all given filters, newest first. query, userId, status and
+    // category may be null; minScore/maxScore apply to category's score. Throws IllegalArgumentException
+    // for a query without searchable words, an unknown category or an invalid cursor.
+    public ContentPreviewPage search(String query, String userId, Content.ContentStatus status,
+                                     String category, Float minScore, Float maxScore,
+                                     String cursor, int size) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS);
+        List<Object> args = new ArrayList<>();
+
+        if (query != null && !query.isBlank()) {
+            sql.append("JOIN text_blobs b ON b.hash = v.text_hash AND b.search_vector @@ to_tsquery('simple', ?) ");
+            args.add(toTsQuery(query));
+        }
+
+        sql.append("WHERE TRUE ");
+        if (userId != null && !userId.isBlank()) {
+            sql.append("AND v.user_id = ? ");
+            args.add(userId);
+        }
+        if (status != null) {
+            sql.append("AND v.status = ? ");
+            args.add(status.name());
+        }
+        if (minScore != null || maxScore != null) {
+            String column = category != null ? SCORE_COLUMNS.get(category.toLowerCase(Locale.ROOT)) : null;
+            if (column == null) {
+                throw new IllegalArgumentException("category must be one of " + SCORE_COLUMNS.keySet());
+            }
+            if (minScore != null) {
+                sql.append("AND ").append(column).append(" >= ? ");
+                args.add(minScore);
+            }
+            if (maxScore != null) {
+                sql.append("AND ").append(column).append(" <= ? ");
+                args.add(maxScore);
+            }
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            PageCursor after = PageCursor.decode(cursor);
+            Timestamp createdAt = Timestamp.valueOf(after.getCreatedAt());
+            sql.append("AND v.created_at <= ? AND (v.created_at < ? OR v.content_id < ?) ");
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(after.getId());
+        }
+
+        // Fetch one extra row to know whether another page exists without counting
+        sql.append("ORDER BY v.created_at DESC, v.content_id DESC LIMIT ?");
+        args.add(size + 1);
+
+        List<ModerationView> rows = replicaReads.read(() -> jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray()));
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            ModerationView last = rows.get(size - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getContentId()).encode();
+        }
+        return new ContentPreviewPage(rows, nextCursor, -1);
+    }
+
+    // Turns free text into a tsquery matching every word as a prefix; a quoted query must match as a phrase
+    static String toTsQuery(String query) {
+        String trimmed = query.trim();
+        boolean phrase = trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\"");
+
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = TERM.matcher(trimmed.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            terms.add(matcher.group() + ":*");
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("query has no searchable words");
+        }
+        return String.join(phrase ? " <-> " : " & ", terms);
+    }
+}
@@ -1,11 +1,24 @@
 package com.crowdshield.service;
 
+import com.crowdshield.config.ReadReplicaTemplate;
 import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationView;
 import com.crowdshield.repository.ContentRepository;
+import com.crowdshield.repository.ModerationViewRepository;
+import com.crowdshield.util.JsonUtils;
+import com.crowdshield.util.PageCursor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -13,19 +26,38 @@ import java.util.UUID;
 @Service
 public class ContentService {
 
+    private static final String ESTIMATE_ALL_SQL =
+            "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = 'moderation_view'::regclass";
+
+    private static final String INSERT_CONTENT_SQL =
+            "INSERT INTO content (id, user_id, type, text_hash, image_url, user_segment, channel, status, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, NOW(), NOW())";
+
     private final ContentRepository contentRepository;
+    private final ModerationViewRepository moderationViewRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadReplicaTemplate replicaReads;
+    private final TextBlobService textBlobService;
 
-    public ContentService(ContentRepository contentRepository) {
+    public ContentService(ContentRepository contentRepository, ModerationViewRepository moderationViewRepository,
+                          JdbcTemplate jdbcTemplate, ReadReplicaTemplate replicaReads,
+                          TextBlobService textBlobService) {
         this.contentRepository = contentRepository;
+        this.moderationViewRepository = moderationViewRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaReads = replicaReads;
+        this.textBlobService = textBlobService;
     }
 
-    // Creates and saves a new text content entry with PENDING status
+    // Creates and saves a new text content entry with PENDING status; the text is stored once per distinct body
     @Transactional
-    public Content createTextContent(String userId, String text) {
+    public Content createTextContent(String userId, String userSegment, String channel, String text) {
         Content content = Content.builder()
                 .userId(userId)
+                .userSegment(userSegment)
+                .channel(channel)
                 .type(Content.ContentType.TEXT)
-                .textContent(text)
+                .textHash(textBlobService.store(text))
                 .status(Content.ContentStatus.PENDING)
                 .build();
 
@@ -37,9 +69,11 @@ public class ContentService {
 
     // Creates and saves a new image content entry with PENDING status
     @Transactional
-    public Content createImageContent(String userId, String imageUrl) {
+    public Content createImageContent(String userId, String userSegment, String channel, String imageUrl) {
         Content content = Content.builder()
                 .userId(userId)
+                .userSegment(userSegment)
+                .channel(channel)
                 .type(Content.ContentType.IMAGE)
                 .imageUrl(imageUrl)
                 .status(Content.ContentStatus.PENDING)
@@ -51,23 +85,123 @@ public class ContentService {
         return saved;
     }
 
-    // Retrieves content by ID from the database
+    // Creates many PENDING content items in one transaction: text blobs with one JDBC batch and content rows
+    // with one batched insert. Returns the created items in input order.
+    @Transactional
+    public List<Content> createContentBatch(List<NewContent> items) {
+        List<String> texts = new ArrayList<>();
+        for (NewContent item : items) {
+            if (item.getType() == Content.ContentType.TEXT) {
+                texts.add(item.getText());
+            }
+        }
+        Iterator<String> hashes = textBlobService.storeAll(texts).iterator();
+
+        List<Content> created = new ArrayList<>(items.size());
+        List<Object[]> rows = new ArrayList<>(items.size());
+        for (NewContent item : items) {
+            Content content = Content.builder()
+                    .id(UUID.randomUUID())
+                    .userId(item.getUserId())
+                    .userSegment(item.getUserSegment())
+                    .channel(item.getChannel())
+                    .type(item.getType())
+                    .textHash(item.getType() == Content.ContentType.TEXT ? hashes.next() : null)
+                    .imageUrl(item.getType() == Content.ContentType.IMAGE ? item.getImageUrl() : null)
+                    .status(Content.ContentStatus.PENDING)
+                    .build();
+            created.add(content);
+            rows.add(new Object[]{content.getId(), content.getUserId(), content.getType().name(), content.getTextHash(),
+                    content.getImageUrl(), content.getUserSegment(), content.getChannel(), content.getStatus().name()});
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_CONTENT_SQL, rows);
+        log.info("Created content batch - items: {}, texts: {}", created.size(), texts.size());
+
+        return created;
+    }
+
+    // Retrieves content by ID, from a read replica when configured
     public Optional<Content> getContent(UUID contentId) {
-        return contentRepository.findById(contentId);
+        Optional<Content> content = replicaReads.read(() -> contentRepository.findById(contentId));
+        if (content.isEmpty() && replicaReads.isEnabled()) {
+            // Content submitted moments ago may not have reached the replica yet; outside a transaction (open-in-view
+            // is off) this read gets its own connection from the primary
+            return contentRepository.findById(contentId);
+        }
+        return content;
+    }
+
+    // Returns the text of a content item from its blob, or from the row itself for content stored before blobs
+    public Optional<String> getText(UUID contentId, String textHash) {
+        if (textHash != null) {
+            Optional<String> text = textBlobService.load(textHash);
+            if (text.isPresent()) {
+                return text;
+            }
+        }
+        // Legacy payloads carry no hash; the row holds either the text or, once migrated, the hash
+        return contentRepository.findById(contentId).flatMap(content -> content.getTextContent() != null
+                ? Optional.of(content.getTextContent())
+                : Optional.ofNullable(content.getTextHash()).flatMap(textBlobService::load));
+    }
+
+    // Returns one keyset page of listing rows from moderation_view, newest first, optionally filtered by status.
+    // The cursor is the token from the previous page; deep pages cost the same as the first.
+    public ContentPreviewPage listPreviews(Content.ContentStatus status, String cursor, int size) {
+        PageCursor after = cursor != null && !cursor.isEmpty() ? PageCursor.decode(cursor) : null;
+        // Fetch one extra row to know whether another page exists without counting
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        List<ModerationView> rows = replicaReads.read(() -> {
+            if (status == null) {
+                return after == null
+                        ? moderationViewRepository.findPage(limit)
+                        : moderationViewRepository.findPageAfter(after.getCreatedAt(), after.getId(), limit);
+            }
+            return after == null
+                    ? moderationViewRepository.findPageByStatus(status, limit)
+                    : moderationViewRepository.findPageByStatusAfter(status, after.getCreatedAt(), after.getId(), limit);
+        });
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            ModerationView last = rows.get(size - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getContentId()).encode();
+        }
+
+        return new ContentPreviewPage(rows, nextCursor, estimateCount(status));
     }
 
-    // Updates the status of content with the given ID
+    // Estimates the number of listing rows (in a status) from planner statistics instead of count(*)
+    public long estimateCount(Content.ContentStatus status) {
+        try {
+            if (status == null) {
+                Long estimate = replicaReads.read(() -> jdbcTemplate.queryForObject(ESTIMATE_ALL_SQL, Long.class));
+                return estimate != null ? estimate : 0;
+            }
+
+            // The enum name is a fixed identifier, so it is safe to inline into the EXPLAIN statement
+            String plan = replicaReads.read(() -> jdbcTemplate.queryForObject(
+                    "EXPLAIN (FORMAT JSON) SELECT 1 FROM moderation_view WHERE status = '" + status.name() + "'", String.class));
+            List<?> parsed = JsonUtils.fromJson(plan, List.class);
+            Map<?, ?> root = (Map<?, ?>) ((Map<?, ?>) parsed.get(0)).get("Plan");
+            return ((Number) root.get("Plan Rows")).longValue();
+        } catch (Exception e) {
+            log.warn("Failed to estimate content count - status: {}, error: {}", status, e.getMessage());
+            return -1;
+        }
+    }
+
+    // Updates the status of content with the given ID using a single UPDATE statement
     @Transactional
-    public Content updateStatus(UUID contentId, Content.ContentStatus status) {
-        Content content = contentRepository.findById(contentId)
-                .orElseThrow(() -> new RuntimeException("Content not found: " + contentId));
-        
-        content.setStatus(status);
-        Content updated = contentRepository.save(content);
-        
+    public void updateStatus(UUID contentId, Content.ContentStatus status) {
+        if (contentRepository.updateStatus(contentId, status, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("Content not found: " + contentId);
+        }
+
         log.info("Updated content status - content_id: {}, status: {}", contentId, status);
-        
-        return updated;
     }
 }
 
@@ -0,0 +1,142 @@
+package com.crowdshield.service;
+
+import com.crowdshield.api.dto.ContentResponse;
+import com.crowdshield.config.ReadReplicaTemplate;
+import com.crowdshield.model.Content;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Status lookups behind GET /api/content/{id}. The status, latest scores and label come from the item's
+ * moderation_view row in one primary-key read over JDBC, instead of loading the content and result
+ * entities. Each lookup carries an ETag built from the row's updated_at and result_at, so pollers can
+ * revalidate with If-None-Match. Decided items change only through an admin override or a relabel, so their
+ * lookups are kept in a small in-memory cache for the same time CDNs are allowed to cache them
+ * (content.status-cache.max-age-seconds); repeated lookups of a decided item never reach the database.
+ * REVIEW is not decided: it waits for a moderator. Every published status change evicts the item's cached
+ * lookup, so an override shows up on this node at once.
+ */
+@Slf4j
+@Service
+public class ContentStatusService {
+
+    private static final Set<Content.ContentStatus> DECIDED_STATUSES = Set.of(
+            Content.ContentStatus.SAFE, Content.ContentStatus.FLAGGED, Content.ContentStatus.ERROR);
+
+    private static final String SELECT_SQL =
+            "SELECT status, overall_label, toxicity_score, hate_score, sexual_score, violence_score, result_at, updated_at "
+                    + "FROM moderation_view WHERE content_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadReplicaTemplate replicaReads;
+    private final long maxAgeSeconds;
+    private final Map<UUID, StatusLookup> decided;
+
+    public ContentStatusService(
+            JdbcTemplate jdbcTemplate,
+            ReadReplicaTemplate replicaReads,
+            VerdictWaitService verdictWaitService,
+            @Value("${content.status-cache.max-age-seconds:60}") long maxAgeSeconds,
+            @Value("${content.status-cache.size:10000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaReads = replicaReads;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.decided = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, StatusLookup> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        verdictWaitService.addListener(verdict -> decided.remove(verdict.getContentId()));
+    }
+
+    // Returns the current status of a content item with its ETag, or empty when it does not exist
+    public Optional<StatusLookup> getStatus(UUID contentId) {
+        StatusLookup cached = decided.get(contentId);
+        if (cached != null && System.nanoTime() < cached.expiresAtNanos) {
+            return Optional.of(cached);
+        }
+
+        RowMapper<StatusLookup> mapper = (rs, rowNum) -> toLookup(contentId,
+                rs.getString("status"), rs.getString("overall_label"),
+                rs.getObject("toxicity_score", Float.class), rs.getObject("hate_score", Float.class),
+                rs.getObject("sexual_score", Float.class), rs.getObject("violence_score", Float.class),
+                rs.getTimestamp("result_at"), rs.getTimestamp("updated_at"));
+
+        List<StatusLookup> rows = replicaReads.read(() -> jdbcTemplate.query(SELECT_SQL, mapper, contentId));
+        if (rows.isEmpty() && replicaReads.isEnabled()) {
+            // Content submitted moments ago may not have reached the replica yet
+            rows = jdbcTemplate.query(SELECT_SQL, mapper, contentId);
+        }
+        if (rows.isEmpty()) {
+            decided.remove(contentId);
+            return Optional.empty();
+        }
+
+        StatusLookup lookup = rows.get(0);
+        if (lookup.decided) {
+            decided.put(contentId, lookup);
+        }
+        return Optional.of(lookup);
+    }
+
+    // Seconds a decided status may be cached by clients and CDNs
+    public long getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    private StatusLookup toLookup(UUID contentId, String status, String label,
+                                  Float toxicity, Float hate, Float sexual, Float violence,
+                                  Timestamp resultAt, Timestamp updatedAt) {
+        ContentResponse response = ContentResponse.builder()
+                .contentId(contentId)
+                .status(status)
+                .label(label)
+                .scores(resultAt == null ? null : ContentResponse.Scores.builder()
+                        .toxicity(toxicity)
+                        .hate(hate)
+                        .sexual(sexual)
+                        .violence(violence)
+                        .build())
+                .build();
+
+        // updated_at moves with every status change (including overrides), result_at with every new result
+        String etag = "\"" + Long.toHexString(micros(updatedAt)) + "-" + Long.toHexString(micros(resultAt)) + "\"";
+        boolean isDecided = DECIDED_STATUSES.contains(Content.ContentStatus.valueOf(status));
+        return new StatusLookup(response, etag, isDecided,
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(maxAgeSeconds));
+    }
+
+    private static long micros(Timestamp timestamp) {
+        if (timestamp == null) {
+            return 0;
+        }
+        return TimeUnit.MILLISECONDS.toMicros(timestamp.getTime() - timestamp.getNanos() / 1_000_000)
+                + timestamp.getNanos() / 1_000;
+    }
+
+    // A status lookup: the response body, its ETag and whether the verdict is final
+    @Getter
+    @AllArgsConstructor
+    public static class StatusLookup {
+        private final ContentResponse response;
+        private final String etag;
+        private final boolean decided;
+        private final long expiresAtNanos;
+    }
+}
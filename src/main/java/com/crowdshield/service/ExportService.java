@@ -0,0 +1,214 @@
+package com.crowdshield.service;
+
+import com.crowdshield.config.ReadReplicaTemplate;
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult;
+import com.crowdshield.util.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Streams moderation history (content with its latest result and override) as gzip-compressed NDJSON or
+ * CSV. Rows are read through a server-side cursor (read-only transaction plus fetch size, on a replica
+ * when configured) and written to the output as they arrive, so heap use does not grow with the export.
+ */
+@Slf4j
+@Service
+public class ExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final String[] COLUMNS = {
+            "content_id", "user_id", "type", "channel", "user_segment", "status", "created_at", "updated_at",
+            "toxicity_score", "hate_score", "sexual_score", "violence_score", "model_label", "result_at",
+            "override_count", "last_override_admin", "last_override_label", "last_override_note", "last_override_at",
+            "image_url"
+    };
+
+    private static final String SELECT_SQL =
+            "SELECT c.id, c.user_id, c.type, c.channel, c.user_segment, c.status, c.created_at, c.updated_at, "
+                    + "r.toxicity_score, r.hate_score, r.sexual_score, r.violence_score, r.overall_label, r.created_at, "
+                    + "COALESCE(a.override_count, 0), a.admin_id, a.new_label, a.note, a.created_at, c.image_url";
+
+    private static final String TEXT_SQL = ", COALESCE(c.text_content, b.body), b.compressed_body";
+
+    private static final String FROM_SQL =
+            " FROM content c "
+                    + "LEFT JOIN LATERAL (SELECT toxicity_score, hate_score, sexual_score, violence_score, overall_label, "
+                    + "created_at FROM moderation_results WHERE content_id = c.id ORDER BY created_at DESC LIMIT 1) r ON TRUE "
+                    + "LEFT JOIN LATERAL (SELECT COUNT(*) OVER () AS override_count, admin_id, new_label, note, created_at "
+                    + "FROM admin_actions WHERE content_id = c.id ORDER BY created_at DESC LIMIT 1) a ON TRUE";
+
+    private static final String TEXT_JOIN_SQL = " LEFT JOIN text_blobs b ON b.hash = c.text_hash";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadReplicaTemplate replicaReads;
+    private final int fetchSize;
+
+    public ExportService(
+            JdbcTemplate jdbcTemplate,
+            ReadReplicaTemplate replicaReads,
+            @Value("${export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaReads = replicaReads;
+        this.fetchSize = fetchSize;
+    }
+
+    // Writes every item created in [from, to) matching the optional status and model label filters to out,
+    // oldest first, gzip-compressed; returns the number of rows written
+    public long export(OutputStream out, Format format, LocalDateTime from, LocalDateTime to,
+                       Content.ContentStatus status, ModerationResult.ModerationLabel label,
+                       boolean includeText) throws IOException {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        if (includeText) {
+            sql.append(TEXT_SQL);
+        }
+        sql.append(FROM_SQL);
+        if (includeText) {
+            sql.append(TEXT_JOIN_SQL);
+        }
+        sql.append(" WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND c.created_at >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND c.created_at < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        if (status != null) {
+            sql.append(" AND c.status = ?");
+            args.add(status.name());
+        }
+        if (label != null) {
+            sql.append(" AND r.overall_label = ?");
+            args.add(label.name());
+        }
+        sql.append(" ORDER BY c.created_at, c.id");
+
+        long startNanos = System.nanoTime();
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rowWriter = new RowWriter(writer, format, includeText);
+
+        try {
+            if (format == Format.CSV) {
+                rowWriter.writeHeader();
+            }
+            // PostgreSQL only streams with a cursor inside a transaction and with a fetch size set
+            replicaReads.read(() -> {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize);
+                    for (int i = 0; i < args.size(); i++) {
+                        statement.setObject(i + 1, args.get(i));
+                    }
+                    return statement;
+                }, rowWriter::processRow);
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            // The client went away; there is nobody left to report to
+            log.warn("Export aborted after {} rows: {}", rowWriter.rows, e.getCause().getMessage());
+            throw e.getCause();
+        }
+
+        writer.flush();
+        gzip.finish();
+        log.info("Export finished - format: {}, rows: {}, duration_ms: {}",
+                format, rowWriter.rows, (System.nanoTime() - startNanos) / 1_000_000);
+        return rowWriter.rows;
+    }
+
+    // Formats each row as it is read and writes it straight to the output
+    private static class RowWriter {
+
+        private final Writer writer;
+        private final Format format;
+        private final boolean includeText;
+        private long rows;
+
+        RowWriter(Writer writer, Format format, boolean includeText) {
+            this.writer = writer;
+            this.format = format;
+            this.includeText = includeText;
+        }
+
+        void writeHeader() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write(includeText ? ",text\n" : "\n");
+        }
+
+        void processRow(ResultSet rs) throws SQLException {
+            Object[] values = new Object[COLUMNS.length + (includeText ? 1 : 0)];
+            for (int i = 0; i < COLUMNS.length; i++) {
+                Object value = rs.getObject(i + 1);
+                values[i] = value instanceof Timestamp timestamp ? timestamp.toLocalDateTime().toString() : value;
+            }
+            if (includeText) {
+                values[COLUMNS.length] = TextBlobService.bodyText(
+                        rs.getString(COLUMNS.length + 1), rs.getBytes(COLUMNS.length + 2));
+            }
+
+            try {
+                if (format == Format.NDJSON) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 0; i < COLUMNS.length; i++) {
+                        row.put(COLUMNS[i], values[i]);
+                    }
+                    if (includeText) {
+                        row.put("text", values[COLUMNS.length]);
+                    }
+                    writer.write(JsonUtils.toJson(row));
+                } else {
+                    for (int i = 0; i < values.length; i++) {
+                        if (i > 0) {
+                            writer.write(',');
+                        }
+                        writer.write(csvField(values[i]));
+                    }
+                }
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+        }
+
+        // Quotes a CSV field when it contains a separator, quote or line break (RFC 4180)
+        private static String csvField(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+}
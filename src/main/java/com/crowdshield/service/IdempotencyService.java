@@ -0,0 +1,109 @@
+package com.crowdshield.service;
+
+import com.crowdshield.queue.RedisKeys;
+import com.crowdshield.util.JsonUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/*
+ * Idempotency-Key support for content submission. Keys are scoped to the submitting user, so two clients
+ * picking the same key never see each other's items. A key is first reserved in Redis with SET NX and a
+ * short in-flight TTL, so concurrent duplicates see the reservation instead of creating their own item;
+ * once the item is created the key maps to its content ID for idempotency.ttl-hours. Each reservation
+ * records a fingerprint of the request body, and a key reused with a different body is reported instead
+ * of replayed. A failed submission releases the key so the client can retry it. If Redis is unreachable,
+ * submissions go ahead without deduplication rather than failing.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    // Stored value: "<body fingerprint>:<content ID>", with an empty content ID while in flight
+    private static final char SEPARATOR = ':';
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Duration ttl;
+    private final Duration inFlightTtl;
+
+    public IdempotencyService(
+            RedisTemplate<String, String> redisTemplate,
+            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${idempotency.in-flight-ttl-seconds:60}") long inFlightTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.inFlightTtl = Duration.ofSeconds(inFlightTtlSeconds);
+    }
+
+    // Returns the fingerprint of a request body: the SHA-256 of its JSON form
+    public static String fingerprint(Object request) {
+        return TextBlobService.hash(JsonUtils.toJson(request));
+    }
+
+    // Reserves the user's key for a new submission to the given endpoint, or reports what already holds it
+    public Reservation reserve(String endpoint, String userId, String key, String fingerprint) {
+        String redisKey = redisKey(endpoint, userId, key);
+        String inFlight = fingerprint + SEPARATOR;
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(redisKey, inFlight, inFlightTtl))) {
+                return new Reservation(true, true, null);
+            }
+            String existing = redisTemplate.opsForValue().get(redisKey);
+            if (existing == null) {
+                // Expired between the two calls; one more attempt settles it
+                return redisTemplate.opsForValue().setIfAbsent(redisKey, inFlight, inFlightTtl) == Boolean.FALSE
+                        ? new Reservation(false, true, null)
+                        : new Reservation(true, true, null);
+            }
+            int separator = existing.indexOf(SEPARATOR);
+            boolean sameRequest = existing.substring(0, separator).equals(fingerprint);
+            String contentId = existing.substring(separator + 1);
+            return new Reservation(false, sameRequest, contentId.isEmpty() ? null : UUID.fromString(contentId));
+        } catch (Exception e) {
+            log.warn("Idempotency check failed, submitting without it - endpoint: {}, error: {}", endpoint, e.getMessage());
+            return new Reservation(true, true, null);
+        }
+    }
+
+    // Maps a reserved key to the content item its submission created
+    public void complete(String endpoint, String userId, String key, String fingerprint, UUID contentId) {
+        try {
+            redisTemplate.opsForValue().set(redisKey(endpoint, userId, key), fingerprint + SEPARATOR + contentId, ttl);
+        } catch (Exception e) {
+            log.warn("Failed to record idempotency key - endpoint: {}, content_id: {}, error: {}",
+                    endpoint, contentId, e.getMessage());
+        }
+    }
+
+    // Frees a reserved key after its submission failed
+    public void release(String endpoint, String userId, String key) {
+        try {
+            redisTemplate.delete(redisKey(endpoint, userId, key));
+        } catch (Exception e) {
+            log.warn("Failed to release idempotency key - endpoint: {}, error: {}", endpoint, e.getMessage());
+        }
+    }
+
+    // Submissions without a user ID share one scope
+    private static String redisKey(String endpoint, String userId, String key) {
+        String scope = userId != null && !userId.isBlank() ? userId : "anonymous";
+        return RedisKeys.IDEMPOTENCY_PREFIX + endpoint + ":" + scope.length() + ":" + scope + ":" + key;
+    }
+
+    // acquired: the caller owns the key and must complete or release it. Otherwise sameRequest tells whether
+    // the key was first used with the same body, and contentId is the item created under the key, or null
+    // while the original submission is still in flight.
+    @Getter
+    @AllArgsConstructor
+    public static class Reservation {
+        private final boolean acquired;
+        private final boolean sameRequest;
+        private final UUID contentId;
+    }
+}
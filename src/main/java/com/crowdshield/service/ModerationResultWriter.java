@@ -0,0 +1,288 @@
+package com.crowdshield.service;
+
+import com.crowdshield.api.dto.ModerationScores;
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult;
+import com.crowdshield.queue.RedisKeys;
+import com.crowdshield.util.JsonUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Persistence stage for finished jobs. Verdicts are queued by the worker and a single writer thread
+ * collects them for up to a few milliseconds, then writes the whole batch in one transaction: one
+ * JDBC batch insert into moderation_results, one batch of status updates and one batch of job
+ * tracking upserts. If a batch fails, its verdicts are retried one transaction each so a single
+ * bad row only fails its own job. The tracking upserts (here, in the worker and on the synchronous
+ * path) rely on one moderation_jobs row per content item; install() enforces that with a unique
+ * constraint, removing older duplicate rows left by earlier versions first. It runs while the context
+ * starts, before the worker consumes any job, and a failure aborts startup: without the constraint
+ * every upsert would fail.
+ */
+@Slf4j
+@Service
+public class ModerationResultWriter {
+
+    private static final String INSERT_RESULT_SQL =
+            "INSERT INTO moderation_results (id, content_id, toxicity_score, hate_score, sexual_score, "
+                    + "violence_score, overall_label, raw_response, raw_encoded, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?, NOW())";
+
+    private static final String UPDATE_STATUS_SQL =
+            "UPDATE content SET status = ?, updated_at = NOW() WHERE id = ?";
+
+    private static final String UPSERT_JOB_SQL =
+            "INSERT INTO moderation_jobs (id, content_id, attempts, queue_name, last_error, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, NULL, NOW(), NOW()) "
+                    + "ON CONFLICT (content_id) DO UPDATE SET attempts = EXCLUDED.attempts, "
+                    + "queue_name = EXCLUDED.queue_name, last_error = NULL, updated_at = NOW()";
+
+    private static final String JOB_CONSTRAINT_EXISTS_SQL =
+            "SELECT to_regclass('uk_moderation_jobs_content_id') IS NOT NULL";
+
+    // Keeps only the most recently updated tracking row per content item
+    private static final String DEDUPE_JOBS_SQL =
+            "DELETE FROM moderation_jobs j USING moderation_jobs newer "
+                    + "WHERE j.content_id = newer.content_id "
+                    + "AND (j.updated_at, j.id) < (newer.updated_at, newer.id)";
+
+    private static final String ADD_JOB_CONSTRAINT_SQL =
+            "ALTER TABLE moderation_jobs ADD CONSTRAINT uk_moderation_jobs_content_id UNIQUE (content_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final WebSocketService webSocketService;
+    private final VerdictWaitService verdictWaitService;
+    private final RawResponseService rawResponseService;
+    private final int batchSize;
+    private final long maxDelayMs;
+
+    private final BlockingQueue<Verdict> pending;
+    private Thread writerThread;
+    private volatile boolean running = true;
+
+    public ModerationResultWriter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            WebSocketService webSocketService,
+            VerdictWaitService verdictWaitService,
+            RawResponseService rawResponseService,
+            @Value("${persistence.writer.batch-size:500}") int batchSize,
+            @Value("${persistence.writer.max-delay-ms:5}") long maxDelayMs,
+            @Value("${persistence.writer.queue-capacity:10000}") int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.webSocketService = webSocketService;
+        this.verdictWaitService = verdictWaitService;
+        this.rawResponseService = rawResponseService;
+        this.batchSize = batchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    // Installs the job tracking constraint, then starts the writer thread
+    @PostConstruct
+    public void start() {
+        install();
+        writerThread = new Thread(this::writeLoop, "moderation-result-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // Adds the unique constraint on moderation_jobs.content_id if missing. Writes to the table wait for the
+    // one-off dedupe so no new duplicate can slip in before the constraint exists; nodes starting together
+    // take turns and only the first finds work to do.
+    void install() {
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(JOB_CONSTRAINT_EXISTS_SQL, Boolean.class))) {
+            return;
+        }
+        Integer removed = writeTransaction.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE moderation_jobs IN SHARE ROW EXCLUSIVE MODE");
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(JOB_CONSTRAINT_EXISTS_SQL, Boolean.class))) {
+                return 0;
+            }
+            int deleted = jdbcTemplate.update(DEDUPE_JOBS_SQL);
+            jdbcTemplate.execute(ADD_JOB_CONSTRAINT_SQL);
+            return deleted;
+        });
+        log.info("Installed unique job tracking constraint - duplicate rows removed: {}", removed);
+    }
+
+    // Queues a verdict for the next batch; blocks when the writer is a full queue behind.
+    // The future completes once the batch holding it has committed. The raw response is encoded here, on the
+    // caller's thread, so the single writer thread spends its time on the batch itself.
+    public CompletableFuture<Void> submit(UUID jobId, UUID contentId, int attempts,
+                                          ModerationScores scores, ModerationResult.ModerationLabel label) {
+        Map<String, Object> rawJson = rawResponseService.toStoredJson(scores.getRawResponse());
+        Verdict verdict = new Verdict(jobId, contentId, attempts, scores, label,
+                rawJson != null ? JsonUtils.toJson(rawJson) : null,
+                rawResponseService.toStoredEncoding(scores.getRawResponse()));
+        try {
+            pending.put(verdict);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            verdict.completion.completeExceptionally(e);
+        }
+        return verdict.completion;
+    }
+
+    // Returns the number of verdicts waiting to be written
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // Stops accepting new batches and writes whatever is still queued
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writerThread == null) {
+            return;
+        }
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Verdict> batch = new ArrayList<>(batchSize);
+
+        while (running || !pending.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                // Shutdown: fall through and write what has been collected, then drain the rest
+                pending.drainTo(batch, batchSize - batch.size());
+            }
+
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        log.info("Moderation result writer stopped");
+    }
+
+    // Waits for the first verdict, then gathers more until the batch is full or the delay has passed
+    private void collect(List<Verdict> batch) throws InterruptedException {
+        Verdict first = pending.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        while (batch.size() < batchSize) {
+            pending.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            Verdict next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<Verdict> batch) {
+        long start = System.nanoTime();
+        try {
+            writeTransaction.executeWithoutResult(status -> writeRows(batch));
+        } catch (Exception e) {
+            log.warn("Batch write of {} verdicts failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Verdict verdict : batch) {
+                try {
+                    writeTransaction.executeWithoutResult(status -> writeRows(List.of(verdict)));
+                    complete(verdict);
+                } catch (Exception rowError) {
+                    log.error("Failed to persist verdict - content_id: {}, error: {}",
+                            verdict.contentId, rowError.getMessage());
+                    verdict.completion.completeExceptionally(rowError);
+                }
+            }
+            return;
+        }
+
+        batch.forEach(this::complete);
+        log.debug("Wrote verdict batch - size: {}, elapsed_ms: {}",
+                batch.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void writeRows(List<Verdict> rows) {
+        List<Object[]> results = new ArrayList<>(rows.size());
+        List<Object[]> statuses = new ArrayList<>(rows.size());
+        List<Object[]> jobs = new ArrayList<>(rows.size());
+
+        for (Verdict v : rows) {
+            results.add(new Object[]{
+                    UUID.randomUUID(), v.contentId,
+                    v.scores.getToxicityScore(), v.scores.getHateScore(),
+                    v.scores.getSexualScore(), v.scores.getViolenceScore(),
+                    v.label.name(), v.rawJson, v.rawEncoded
+            });
+            statuses.add(new Object[]{Content.ContentStatus.fromLabel(v.label).name(), v.contentId});
+            jobs.add(new Object[]{v.jobId, v.contentId, v.attempts, RedisKeys.MAIN_QUEUE});
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_RESULT_SQL, results);
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, statuses);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new IllegalStateException("Content not found: " + rows.get(i).contentId);
+            }
+        }
+        jdbcTemplate.batchUpdate(UPSERT_JOB_SQL, jobs);
+    }
+
+    // Sends the final WebSocket update and wakes waiting submissions only after the verdict is committed
+    private void complete(Verdict verdict) {
+        String status = Content.ContentStatus.fromLabel(verdict.label).name();
+        webSocketService.sendStatusUpdate(verdict.contentId, "DONE", status);
+        webSocketService.sendProgressUpdate(verdict.contentId, "DONE", 100);
+        verdictWaitService.publish(verdict.contentId, verdict.label, verdict.scores);
+        verdict.completion.complete(null);
+    }
+
+    private static final class Verdict {
+
+        final UUID jobId;
+        final UUID contentId;
+        final int attempts;
+        final ModerationScores scores;
+        final ModerationResult.ModerationLabel label;
+        // Stored forms of the raw response, as decided by the raw response policy
+        final String rawJson;
+        final byte[] rawEncoded;
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        Verdict(UUID jobId, UUID contentId, int attempts, ModerationScores scores,
+                ModerationResult.ModerationLabel label, String rawJson, byte[] rawEncoded) {
+            this.jobId = jobId;
+            this.contentId = contentId;
+            this.attempts = attempts;
+            this.scores = scores;
+            this.label = label;
+            this.rawJson = rawJson;
+            this.rawEncoded = rawEncoded;
+        }
+    }
+}
@@ -1,40 +1,71 @@
 package com.crowdshield.service;
 
 import com.crowdshield.api.dto.ModerationScores;
+import com.crowdshield.config.ReadReplicaTemplate;
 import com.crowdshield.model.Content;
 import com.crowdshield.model.ModerationResult;
+import com.crowdshield.queue.RedisKeys;
+import com.crowdshield.repository.ModerationJobRepository;
 import com.crowdshield.repository.ModerationResultRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
 public class ModerationService {
 
     private final ModerationResultRepository resultRepository;
+    private final ModerationJobRepository jobRepository;
     private final RuleEngineService ruleEngineService;
     private final ContentService contentService;
     private final WebSocketService webSocketService;
+    private final ModerationResultWriter resultWriter;
+    private final VerdictWaitService verdictWaitService;
+    private final RawResponseService rawResponseService;
+    private final ReadReplicaTemplate replicaReads;
+    private final TransactionTemplate writeTransaction;
+    private final boolean batchWrites;
 
     public ModerationService(
             ModerationResultRepository resultRepository,
+            ModerationJobRepository jobRepository,
             RuleEngineService ruleEngineService,
             ContentService contentService,
-            WebSocketService webSocketService) {
+            WebSocketService webSocketService,
+            ModerationResultWriter resultWriter,
+            VerdictWaitService verdictWaitService,
+            RawResponseService rawResponseService,
+            ReadReplicaTemplate replicaReads,
+            PlatformTransactionManager transactionManager,
+            @Value("${persistence.writer.enabled:true}") boolean batchWrites) {
         this.resultRepository = resultRepository;
+        this.jobRepository = jobRepository;
         this.ruleEngineService = ruleEngineService;
         this.contentService = contentService;
         this.webSocketService = webSocketService;
+        this.resultWriter = resultWriter;
+        this.verdictWaitService = verdictWaitService;
+        this.rawResponseService = rawResponseService;
+        this.replicaReads = replicaReads;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.batchWrites = batchWrites;
     }
 
-    // Saves moderation result, evaluates scores using rule engine, updates content status, and sends WebSocket notification
+    // Evaluates scores using rule engine, then inserts the result, updates content status and records the finished job
+    // in one transaction (three statements, no reads), and sends the final WebSocket notification
     @Transactional
-    public ModerationResult saveModerationResult(UUID contentId, ModerationScores scores) {
-        ModerationResult.ModerationLabel label = ruleEngineService.evaluate(scores);
+    public ModerationResult saveModerationResult(UUID jobId, UUID contentId, Content.ContentType contentType,
+                                                 String userSegment, String channel, int attempts,
+                                                 ModerationScores scores) {
+        ModerationResult.ModerationLabel label = ruleEngineService.evaluate(scores, contentType, userSegment, channel);
 
         ModerationResult result = ModerationResult.builder()
                 .contentId(contentId)
@@ -43,20 +74,21 @@ public class ModerationService {
                 .sexualScore(scores.getSexualScore())
                 .violenceScore(scores.getViolenceScore())
                 .overallLabel(label)
-                .rawResponse(scores.getRawResponse())
+                .rawResponse(rawResponseService.toStoredJson(scores.getRawResponse()))
+                .rawEncoded(rawResponseService.toStoredEncoding(scores.getRawResponse()))
                 .build();
 
         ModerationResult saved = resultRepository.save(result);
 
         // Update content status
-        Content.ContentStatus status = label == ModerationResult.ModerationLabel.FLAGGED 
-                ? Content.ContentStatus.FLAGGED 
-                : Content.ContentStatus.SAFE;
+        Content.ContentStatus status = Content.ContentStatus.fromLabel(label);
         contentService.updateStatus(contentId, status);
 
+        // Record the completed job; one row per content item, created or updated in place
+        jobRepository.upsertByContentId(jobId, contentId, attempts, RedisKeys.MAIN_QUEUE, null);
+
         // Send final WebSocket update
-        String finalStatus = status == Content.ContentStatus.FLAGGED ? "FLAGGED" : "SAFE";
-        webSocketService.sendStatusUpdate(contentId, "DONE", finalStatus);
+        webSocketService.sendStatusUpdate(contentId, "DONE", status.name());
         webSocketService.sendProgressUpdate(contentId, "DONE", 100);
 
         log.info("Saved moderation result - content_id: {}, label: {}", contentId, label);
@@ -64,9 +96,26 @@ public class ModerationService {
         return saved;
     }
 
-    // Retrieves moderation result for a given content ID
+    // Evaluates scores and queues the verdict for the batched writer; the future completes when it is committed.
+    // With persistence.writer.enabled=false the verdict is written immediately in its own transaction.
+    public CompletableFuture<Void> submitModerationResult(UUID jobId, UUID contentId, Content.ContentType contentType,
+                                                          String userSegment, String channel, int attempts,
+                                                          ModerationScores scores) {
+        if (!batchWrites) {
+            // A self-call would bypass the @Transactional proxy, so the transaction is opened here
+            ModerationResult saved = writeTransaction.execute(status -> saveModerationResult(
+                    jobId, contentId, contentType, userSegment, channel, attempts, scores));
+            verdictWaitService.publish(contentId, saved.getOverallLabel(), scores);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ModerationResult.ModerationLabel label = ruleEngineService.evaluate(scores, contentType, userSegment, channel);
+        return resultWriter.submit(jobId, contentId, attempts, scores, label);
+    }
+
+    // Retrieves moderation result for a given content ID, from a read replica when configured
     public Optional<ModerationResult> getModerationResult(UUID contentId) {
-        return resultRepository.findByContentId(contentId);
+        return replicaReads.read(() -> resultRepository.findByContentId(contentId));
     }
 }
 
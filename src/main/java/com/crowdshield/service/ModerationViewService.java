@@ -0,0 +1,247 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.ModerationView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Maintains moderation_view, the denormalized read model behind the admin listings. Each row holds a
+ * content item's precomputed preview, its latest scores and label, and how often an admin overrode it,
+ * so listings are single-table indexed reads with no joins or text truncation at query time.
+ * Triggers keep it current in the same transaction as the write: content inserts, status changes and
+ * deletes (worker completion, sweeps, relabeling, retention), moderation result writes, and admin
+ * override actions. rebuild() recomputes it from the source tables for repair, in keyset chunks of
+ * content IDs with no table locks: each chunk locks only its own view rows, so writes to other items go
+ * on and writes to the chunk's items wait for one short transaction. A PostgreSQL advisory lock keeps
+ * the rebuild, and the trigger installation at startup, to one node at a time. The functions and
+ * triggers are defined only here; db/schema.sql creates just the table.
+ */
+@Slf4j
+@Service
+public class ModerationViewService {
+
+    // Text head (or image URL) cut to the preview length with "..." when longer
+    private static final String CREATE_PREVIEW_FUNCTION_SQL =
+            "CREATE OR REPLACE FUNCTION moderation_view_preview(content_type TEXT, body TEXT, image_url TEXT) "
+                    + "RETURNS TEXT AS $$\n"
+                    + "    SELECT CASE WHEN content_type <> 'TEXT' THEN image_url\n"
+                    + "                WHEN length(body) > " + ModerationView.PREVIEW_LENGTH
+                    + " THEN left(body, " + ModerationView.PREVIEW_LENGTH + ") || '...'\n"
+                    + "                ELSE body END\n"
+                    + "$$ LANGUAGE sql IMMUTABLE";
+
+    private static final String CREATE_CONTENT_FUNCTION_SQL =
+            "CREATE OR REPLACE FUNCTION moderation_view_content_trigger() RETURNS trigger AS $$\n"
+                    + "BEGIN\n"
+                    + "    IF TG_OP = 'DELETE' THEN\n"
+                    + "        DELETE FROM moderation_view WHERE content_id = OLD.id;\n"
+                    + "    ELSIF TG_OP = 'UPDATE' THEN\n"
+                    + "        UPDATE moderation_view SET status = NEW.status, updated_at = NEW.updated_at\n"
+                    + "        WHERE content_id = NEW.id;\n"
+                    + "    ELSE\n"
+                    + "        INSERT INTO moderation_view (content_id, user_id, type, status, channel, text_hash, preview,\n"
+                    + "                                     override_count, created_at, updated_at)\n"
+                    + "        VALUES (NEW.id, NEW.user_id, NEW.type, NEW.status, NEW.channel, NEW.text_hash,\n"
+                    + "                moderation_view_preview(NEW.type, COALESCE(NEW.text_content,\n"
+                    + "                    (SELECT head FROM text_blobs WHERE hash = NEW.text_hash)), NEW.image_url),\n"
+                    + "                0, NEW.created_at, NEW.updated_at)\n"
+                    + "        ON CONFLICT (content_id) DO NOTHING;\n"
+                    + "    END IF;\n"
+                    + "    RETURN NULL;\n"
+                    + "END;\n"
+                    + "$$ LANGUAGE plpgsql";
+
+    // A result only replaces the scores when it is at least as recent as the one already shown
+    private static final String CREATE_RESULT_FUNCTION_SQL =
+            "CREATE OR REPLACE FUNCTION moderation_view_result_trigger() RETURNS trigger AS $$\n"
+                    + "BEGIN\n"
+                    + "    UPDATE moderation_view SET toxicity_score = NEW.toxicity_score, hate_score = NEW.hate_score,\n"
+                    + "        sexual_score = NEW.sexual_score, violence_score = NEW.violence_score,\n"
+                    + "        overall_label = NEW.overall_label, result_at = NEW.created_at, scores_changed_at = clock_timestamp()\n"
+                    + "    WHERE content_id = NEW.content_id AND (result_at IS NULL OR result_at <= NEW.created_at);\n"
+                    + "    RETURN NULL;\n"
+                    + "END;\n"
+                    + "$$ LANGUAGE plpgsql";
+
+    private static final String CREATE_OVERRIDE_FUNCTION_SQL =
+            "CREATE OR REPLACE FUNCTION moderation_view_override_trigger() RETURNS trigger AS $$\n"
+                    + "BEGIN\n"
+                    + "    UPDATE moderation_view SET override_count = override_count + 1 WHERE content_id = NEW.content_id;\n"
+                    + "    RETURN NULL;\n"
+                    + "END;\n"
+                    + "$$ LANGUAGE plpgsql";
+
+    private static final String FUNCTION_SOURCE_SQL =
+            "SELECT prosrc FROM pg_proc WHERE proname = 'moderation_view_content_trigger'";
+
+    private static final String TRIGGER_COUNT_SQL =
+            "SELECT COUNT(*) FROM pg_trigger WHERE tgname IN "
+                    + "('moderation_view_content', 'moderation_view_result', 'moderation_view_override')";
+
+    private static final String[] CREATE_TRIGGER_SQL = {
+            "DROP TRIGGER IF EXISTS moderation_view_content ON content",
+            "CREATE TRIGGER moderation_view_content AFTER INSERT OR DELETE OR UPDATE OF status ON content "
+                    + "FOR EACH ROW EXECUTE FUNCTION moderation_view_content_trigger()",
+            "DROP TRIGGER IF EXISTS moderation_view_result ON moderation_results",
+            "CREATE TRIGGER moderation_view_result AFTER INSERT OR UPDATE ON moderation_results "
+                    + "FOR EACH ROW EXECUTE FUNCTION moderation_view_result_trigger()",
+            "DROP TRIGGER IF EXISTS moderation_view_override ON admin_actions",
+            "CREATE TRIGGER moderation_view_override AFTER INSERT ON admin_actions "
+                    + "FOR EACH ROW EXECUTE FUNCTION moderation_view_override_trigger()"
+    };
+
+    private static final String INSTALL_LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('moderation_view.install'))";
+    private static final String TRY_REBUILD_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('moderation_view.rebuild'))";
+    private static final String REBUILD_UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('moderation_view.rebuild'))";
+
+    private static final UUID FIRST_ID = new UUID(0, 0);
+    private static final UUID LAST_ID = new UUID(-1, -1);
+
+    // Upper bound of the chunk starting after the given ID; none when fewer than a chunk's worth are left
+    private static final String CHUNK_END_SQL = "SELECT id FROM content WHERE id > ? ORDER BY id OFFSET ? LIMIT 1";
+
+    // Holds back trigger updates to the chunk's rows until it commits, so none is overwritten by stale values
+    private static final String LOCK_CHUNK_SQL =
+            "SELECT content_id FROM moderation_view WHERE content_id > ? AND content_id <= ? ORDER BY content_id FOR UPDATE";
+
+    private static final String DELETE_ORPHANS_SQL =
+            "DELETE FROM moderation_view v WHERE v.content_id > ? AND v.content_id <= ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM content c WHERE c.id = v.content_id)";
+
+    // One row per content item in the chunk with its latest result and override count
+    private static final String REBUILD_CHUNK_SQL =
+            "INSERT INTO moderation_view (content_id, user_id, type, status, channel, text_hash, preview, toxicity_score, "
+                    + "hate_score, sexual_score, violence_score, overall_label, result_at, scores_changed_at, override_count, "
+                    + "created_at, updated_at) "
+                    + "SELECT c.id, c.user_id, c.type, c.status, c.channel, c.text_hash, "
+                    + "moderation_view_preview(c.type, COALESCE(c.text_content, b.head), c.image_url), "
+                    + "r.toxicity_score, r.hate_score, r.sexual_score, r.violence_score, r.overall_label, r.created_at, "
+                    + "clock_timestamp(), COALESCE(a.overrides, 0), c.created_at, c.updated_at "
+                    + "FROM content c "
+                    + "LEFT JOIN text_blobs b ON b.hash = c.text_hash "
+                    + "LEFT JOIN LATERAL (SELECT toxicity_score, hate_score, sexual_score, violence_score, "
+                    + "overall_label, created_at FROM moderation_results WHERE content_id = c.id "
+                    + "ORDER BY created_at DESC LIMIT 1) r ON TRUE "
+                    + "LEFT JOIN LATERAL (SELECT COUNT(*) AS overrides FROM admin_actions WHERE content_id = c.id) a ON TRUE "
+                    + "WHERE c.id > ? AND c.id <= ? "
+                    + "ON CONFLICT (content_id) DO UPDATE SET user_id = EXCLUDED.user_id, type = EXCLUDED.type, "
+                    + "status = EXCLUDED.status, channel = EXCLUDED.channel, text_hash = EXCLUDED.text_hash, "
+                    + "preview = EXCLUDED.preview, toxicity_score = EXCLUDED.toxicity_score, "
+                    + "hate_score = EXCLUDED.hate_score, sexual_score = EXCLUDED.sexual_score, "
+                    + "violence_score = EXCLUDED.violence_score, overall_label = EXCLUDED.overall_label, "
+                    + "result_at = EXCLUDED.result_at, scores_changed_at = EXCLUDED.scores_changed_at, override_count = EXCLUDED.override_count, "
+                    + "created_at = EXCLUDED.created_at, updated_at = EXCLUDED.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public ModerationViewService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${moderation-view.rebuild-chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    // Installs the maintenance functions and triggers. The view is (re)populated when the triggers are first
+    // installed, which picks up anything written before they existed, and when the row definition changed.
+    // Nodes starting together install one after another, so only the first sees a change to rebuild for.
+    @EventListener(ApplicationReadyEvent.class)
+    public void install() {
+        try {
+            Boolean needsRebuild = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute(INSTALL_LOCK_SQL);
+                List<String> installedSource = jdbcTemplate.queryForList(FUNCTION_SOURCE_SQL, String.class);
+                boolean definitionChanged = installedSource.isEmpty()
+                        || !installedSource.get(0).equals(functionBody(CREATE_CONTENT_FUNCTION_SQL));
+
+                jdbcTemplate.execute(CREATE_PREVIEW_FUNCTION_SQL);
+                jdbcTemplate.execute(CREATE_CONTENT_FUNCTION_SQL);
+                jdbcTemplate.execute(CREATE_RESULT_FUNCTION_SQL);
+                jdbcTemplate.execute(CREATE_OVERRIDE_FUNCTION_SQL);
+                Integer triggers = jdbcTemplate.queryForObject(TRIGGER_COUNT_SQL, Integer.class);
+                if (triggers != null && triggers == CREATE_TRIGGER_SQL.length / 2) {
+                    return definitionChanged;
+                }
+                for (String sql : CREATE_TRIGGER_SQL) {
+                    jdbcTemplate.execute(sql);
+                }
+                log.info("Installed moderation view triggers");
+                return true;
+            });
+            if (Boolean.TRUE.equals(needsRebuild)) {
+                rebuild();
+            }
+        } catch (IllegalStateException e) {
+            log.info("Skipping moderation view rebuild: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("Failed to install moderation view: {}", e.getMessage());
+        }
+    }
+
+    // Recomputes every row from content, moderation_results and admin_actions, one chunk of content IDs per
+    // transaction, and drops rows of deleted content. Reads see each chunk's new rows as it commits.
+    // Throws IllegalStateException when another node is already rebuilding.
+    public int rebuild() {
+        // The advisory lock belongs to this connection's session, so it is held on a connection of its own
+        // while the chunks run in their own transactions
+        Integer rows = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet locked = statement.executeQuery(TRY_REBUILD_LOCK_SQL)) {
+                if (!locked.next() || !locked.getBoolean(1)) {
+                    throw new IllegalStateException("A moderation view rebuild is already running");
+                }
+            }
+            try {
+                return rebuildChunks();
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(REBUILD_UNLOCK_SQL);
+                }
+            }
+        });
+        log.info("Rebuilt moderation view - rows: {}", rows);
+        return rows != null ? rows : 0;
+    }
+
+    private int rebuildChunks() {
+        int rows = 0;
+        int chunks = 0;
+        UUID start = FIRST_ID;
+        while (start != null) {
+            List<UUID> next = jdbcTemplate.queryForList(CHUNK_END_SQL, UUID.class, start, chunkSize - 1);
+            UUID end = next.isEmpty() ? LAST_ID : next.get(0);
+
+            UUID from = start;
+            Integer written = transactionTemplate.execute(status -> {
+                jdbcTemplate.queryForList(LOCK_CHUNK_SQL, UUID.class, from, end);
+                jdbcTemplate.update(DELETE_ORPHANS_SQL, from, end);
+                return jdbcTemplate.update(REBUILD_CHUNK_SQL, from, end);
+            });
+            rows += written != null ? written : 0;
+            chunks++;
+            start = next.isEmpty() ? null : end;
+        }
+        log.debug("Rebuilt moderation view in {} chunks", chunks);
+        return rows;
+    }
+
+    // The part of a CREATE FUNCTION statement between the $$ quotes, as stored in pg_proc.prosrc
+    private static String functionBody(String createFunctionSql) {
+        return createFunctionSql.substring(createFunctionSql.indexOf("$$") + 2, createFunctionSql.lastIndexOf("$$"));
+    }
+}
@@ -0,0 +1,16 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.Content;
+import lombok.Value;
+
+// One item of a batch submission, before it is stored; text is set for TEXT items, imageUrl for IMAGE items
+@Value
+public class NewContent {
+
+    String userId;
+    String userSegment;
+    String channel;
+    Content.ContentType type;
+    String text;
+    String imageUrl;
+}
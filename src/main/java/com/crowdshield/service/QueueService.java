@@ -1,13 +1,23 @@
 package com.crowdshield.service;
 
+import com.crowdshield.model.Content;
 import com.crowdshield.queue.RedisKeys;
 import com.crowdshield.util.JsonUtils;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -15,21 +25,31 @@ import java.util.concurrent.TimeUnit;
 public class QueueService {
 
     private final RedisTemplate<String, String> redisTemplate;
+    private final String nodeId;
+    private final String inFlightKey;
+    private final long nodeTimeoutMs;
 
-    public QueueService(RedisTemplate<String, String> redisTemplate) {
+    // Heartbeats get their own thread so a long scheduled task can never make a live node look dead
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public QueueService(
+            RedisTemplate<String, String> redisTemplate,
+            @Value("${queue.worker.node-id:${HOSTNAME:local}}") String nodeId,
+            @Value("${queue.worker.node-timeout-ms:30000}") long nodeTimeoutMs) {
         this.redisTemplate = redisTemplate;
+        this.nodeId = nodeId;
+        this.inFlightKey = RedisKeys.IN_FLIGHT_PREFIX + nodeId;
+        this.nodeTimeoutMs = nodeTimeoutMs;
     }
 
     // Adds a new moderation job to the main processing queue in Redis
-    public void pushToMainQueue(UUID jobId, UUID contentId, String contentType, String text, String imageUrl, int attempts) {
-        Map<String, Object> job = Map.of(
-                "job_id", jobId.toString(),
-                "content_id", contentId.toString(),
-                "content_type", contentType,
-                "text", text != null ? text : "",
-                "image_url", imageUrl != null ? imageUrl : "",
-                "attempts", attempts
-        );
+    public void pushToMainQueue(UUID jobId, UUID contentId, String contentType, String textHash, String imageUrl,
+                                String userSegment, String channel, int attempts) {
+        Map<String, Object> job = buildJob(jobId, contentId, contentType, textHash, imageUrl, userSegment, channel, attempts);
 
         String jobJson = JsonUtils.toJson(job);
         redisTemplate.opsForList().leftPush(RedisKeys.MAIN_QUEUE, jobJson);
@@ -37,16 +57,23 @@ public class QueueService {
         log.info("Pushed job to main queue - job_id: {}, content_id: {}, attempts: {}", jobId, contentId, attempts);
     }
 
+    // Adds a new job for each content item to the main queue with a single multi-value LPUSH (one round trip).
+    // Jobs are consumed in list order.
+    public void pushAllToMainQueue(List<Content> contents) {
+        List<String> jobs = new ArrayList<>(contents.size());
+        for (Content content : contents) {
+            jobs.add(JsonUtils.toJson(buildJob(UUID.randomUUID(), content.getId(), content.getType().name(),
+                    content.getTextHash(), content.getImageUrl(), content.getUserSegment(), content.getChannel(), 0)));
+        }
+        redisTemplate.opsForList().leftPushAll(RedisKeys.MAIN_QUEUE, jobs);
+
+        log.info("Pushed {} jobs to main queue", jobs.size());
+    }
+
     // Moves a failed job to the retry queue for processing with exponential backoff
-    public void pushToRetryQueue(UUID jobId, UUID contentId, String contentType, String text, String imageUrl, int attempts) {
-        Map<String, Object> job = Map.of(
-                "job_id", jobId.toString(),
-                "content_id", contentId.toString(),
-                "content_type", contentType,
-                "text", text != null ? text : "",
-                "image_url", imageUrl != null ? imageUrl : "",
-                "attempts", attempts
-        );
+    public void pushToRetryQueue(UUID jobId, UUID contentId, String contentType, String textHash, String imageUrl,
+                                 String userSegment, String channel, int attempts) {
+        Map<String, Object> job = buildJob(jobId, contentId, contentType, textHash, imageUrl, userSegment, channel, attempts);
 
         String jobJson = JsonUtils.toJson(job);
         redisTemplate.opsForList().leftPush(RedisKeys.RETRY_QUEUE, jobJson);
@@ -55,16 +82,11 @@ public class QueueService {
     }
 
     // Moves a permanently failed job to the dead-letter queue for manual review
-    public void pushToDLQ(UUID jobId, UUID contentId, String contentType, String text, String imageUrl, int attempts, String error) {
-        Map<String, Object> job = Map.of(
-                "job_id", jobId.toString(),
-                "content_id", contentId.toString(),
-                "content_type", contentType,
-                "text", text != null ? text : "",
-                "image_url", imageUrl != null ? imageUrl : "",
-                "attempts", attempts,
-                "error", error != null ? error : ""
-        );
+    public void pushToDLQ(UUID jobId, UUID contentId, String contentType, String textHash, String imageUrl,
+                          String userSegment, String channel, int attempts, String error) {
+        Map<String, Object> job = new HashMap<>(
+                buildJob(jobId, contentId, contentType, textHash, imageUrl, userSegment, channel, attempts));
+        job.put("error", error != null ? error : "");
 
         String jobJson = JsonUtils.toJson(job);
         redisTemplate.opsForList().leftPush(RedisKeys.DLQ, jobJson);
@@ -72,6 +94,22 @@ public class QueueService {
         log.error("Pushed job to DLQ - job_id: {}, content_id: {}, attempts: {}, error: {}", jobId, contentId, attempts, error);
     }
 
+    // Builds the job payload; segment and channel travel with the job so the worker can evaluate rules without reading content.
+    // Text jobs carry the hash of the stored text rather than the text itself.
+    private Map<String, Object> buildJob(UUID jobId, UUID contentId, String contentType, String textHash, String imageUrl,
+                                         String userSegment, String channel, int attempts) {
+        return Map.of(
+                "job_id", jobId.toString(),
+                "content_id", contentId.toString(),
+                "content_type", contentType,
+                "text_hash", textHash != null ? textHash : "",
+                "image_url", imageUrl != null ? imageUrl : "",
+                "user_segment", userSegment != null ? userSegment : "",
+                "channel", channel != null ? channel : "",
+                "attempts", attempts
+        );
+    }
+
     // Removes and returns a job from the specified queue, blocking for the timeout duration if queue is empty
     @SuppressWarnings("unchecked")
     public Map<String, Object> popFromQueue(String queueName, long timeoutSeconds) {
@@ -87,6 +125,80 @@ public class QueueService {
         return job;
     }
 
+    // Moves the oldest job of the main queue onto this node's in-flight list and returns it, blocking for the
+    // timeout duration if the queue is empty. The job stays in flight until ack(), so it survives a crash.
+    public String claimFromMainQueue(long timeoutSeconds) {
+        return redisTemplate.opsForList().rightPopAndLeftPush(
+                RedisKeys.MAIN_QUEUE, inFlightKey, timeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    // Removes a claimed job from the in-flight list once its outcome (verdict, retry or DLQ) is recorded.
+    // Jobs finish roughly in claim order, so the search starts from the oldest end.
+    public void ack(String jobJson) {
+        redisTemplate.opsForList().remove(inFlightKey, -1, jobJson);
+    }
+
+    // Puts jobs this node claimed but never acknowledged, e.g. before a crash, back on the main queue
+    public long requeueInFlight() {
+        return requeue(inFlightKey);
+    }
+
+    // Announces this node as a live worker and keeps its heartbeat fresh; call before claiming jobs
+    public void registerNode() {
+        heartbeat();
+        long interval = Math.max(nodeTimeoutMs / 3, 1);
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Requeues the in-flight jobs of nodes whose heartbeat has expired, e.g. pods replaced under a new name.
+    // Every node runs this; each job is moved atomically, so two nodes reaping the same list cannot duplicate it.
+    @Scheduled(fixedDelayString = "${queue.worker.reap-interval-ms:60000}")
+    public void reapDeadNodes() {
+        try {
+            Set<String> nodes = redisTemplate.opsForSet().members(RedisKeys.WORKER_NODES);
+            if (nodes == null) {
+                return;
+            }
+            for (String node : nodes) {
+                if (node.equals(nodeId) || Boolean.TRUE.equals(redisTemplate.hasKey(RedisKeys.HEARTBEAT_PREFIX + node))) {
+                    continue;
+                }
+                long requeued = requeue(RedisKeys.IN_FLIGHT_PREFIX + node);
+                // A node that comes back under the same ID adds itself again with its next heartbeat
+                redisTemplate.opsForSet().remove(RedisKeys.WORKER_NODES, node);
+                log.info("Reaped worker node {} - jobs requeued: {}", node, requeued);
+            }
+        } catch (Exception e) {
+            log.error("Failed to reap dead worker nodes: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    private void heartbeat() {
+        try {
+            redisTemplate.opsForValue().set(RedisKeys.HEARTBEAT_PREFIX + nodeId, "1", nodeTimeoutMs, TimeUnit.MILLISECONDS);
+            redisTemplate.opsForSet().add(RedisKeys.WORKER_NODES, nodeId);
+        } catch (Exception e) {
+            log.warn("Failed to refresh worker heartbeat: {}", e.getMessage());
+        }
+    }
+
+    // Moves every job of an in-flight list back to the main queue
+    private long requeue(String listKey) {
+        long requeued = 0;
+        while (redisTemplate.opsForList().rightPopAndLeftPush(listKey, RedisKeys.MAIN_QUEUE) != null) {
+            requeued++;
+        }
+        if (requeued > 0) {
+            log.warn("Requeued {} unacknowledged jobs from {}", requeued, listKey);
+        }
+        return requeued;
+    }
+
     // Returns the current number of jobs waiting in the specified queue
     public long getQueueSize(String queueName) {
         Long size = redisTemplate.opsForList().size(queueName);
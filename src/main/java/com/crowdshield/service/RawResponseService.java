@@ -0,0 +1,83 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.ModerationResult;
+import com.crowdshield.util.RawResponseCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Decides how much of each provider response is stored with a moderation result
+ * (persistence.raw-response.policy):
+ *   FULL    - the whole response as JSONB (previous behaviour)
+ *   SAMPLED - the whole response for a sample-rate fraction of results, nothing for the rest
+ *   COMPACT - a binary encoding (category vector plus dictionary-deflated remainder) in raw_encoded (default)
+ *   DROP    - nothing
+ * Stored responses are only decoded when an audit lookup asks for them.
+ */
+@Slf4j
+@Service
+public class RawResponseService {
+
+    public enum Policy {
+        FULL, SAMPLED, COMPACT, DROP
+    }
+
+    private final Policy policy;
+    private final double sampleRate;
+
+    public RawResponseService(
+            @Value("${persistence.raw-response.policy:COMPACT}") String policy,
+            @Value("${persistence.raw-response.sample-rate:0.01}") double sampleRate) {
+        this.policy = Policy.valueOf(policy.trim().toUpperCase(Locale.ROOT));
+        this.sampleRate = sampleRate;
+        log.info("Raw response storage policy: {}{}", this.policy,
+                this.policy == Policy.SAMPLED ? " (rate " + sampleRate + ")" : "");
+    }
+
+    // Returns the response to store in raw_response (JSONB), or null
+    public Map<String, Object> toStoredJson(Map<String, Object> rawResponse) {
+        if (rawResponse == null) {
+            return null;
+        }
+        return switch (policy) {
+            case FULL -> rawResponse;
+            case SAMPLED -> ThreadLocalRandom.current().nextDouble() < sampleRate ? rawResponse : null;
+            case COMPACT, DROP -> null;
+        };
+    }
+
+    // Returns the bytes to store in raw_encoded, or null
+    public byte[] toStoredEncoding(Map<String, Object> rawResponse) {
+        if (rawResponse == null || policy != Policy.COMPACT) {
+            return null;
+        }
+        try {
+            return RawResponseCodec.encode(rawResponse);
+        } catch (Exception e) {
+            // The scores are already in their own columns; losing the audit copy must not fail the job
+            log.warn("Failed to encode raw response, storing none: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Returns the stored provider response of a result, decoding the compact form on demand
+    public Optional<Map<String, Object>> decode(ModerationResult result) {
+        if (result.getRawResponse() != null) {
+            return Optional.of(result.getRawResponse());
+        }
+        if (result.getRawEncoded() != null) {
+            return Optional.of(RawResponseCodec.decode(result.getRawEncoded()));
+        }
+        return Optional.empty();
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+}
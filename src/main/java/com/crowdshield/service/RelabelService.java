@@ -0,0 +1,371 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult;
+import com.crowdshield.rules.ScoreVector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Re-applies the current moderation policies (per channel) to stored scores without calling the ML provider.
+ * Rows are streamed through a server-side cursor, evaluated in parallel chunks and only the
+ * verdicts that change are written back with JDBC batch updates, then published on the verdict channel.
+ * Only each item's latest result is relabeled; older results of items processed more than once are history
+ * and never drive the content status. Content with an admin override keeps its manual decision.
+ */
+@Slf4j
+@Service
+public class RelabelService {
+
+    private static final String SCAN_SQL =
+            "SELECT r.id, c.id, r.toxicity_score, r.hate_score, r.sexual_score, r.violence_score, "
+                    + "r.overall_label, c.type, c.user_segment, c.channel "
+                    + "FROM content c JOIN LATERAL ("
+                    + "    SELECT id, toxicity_score, hate_score, sexual_score, violence_score, overall_label"
+                    + "    FROM moderation_results WHERE content_id = c.id ORDER BY created_at DESC LIMIT 1"
+                    + ") r ON TRUE "
+                    + "WHERE c.status IN ('SAFE', 'FLAGGED', 'REVIEW') "
+                    + "AND NOT EXISTS (SELECT 1 FROM admin_actions a WHERE a.content_id = c.id)";
+
+    private static final String UPDATE_RESULT_SQL =
+            "UPDATE moderation_results SET overall_label = ? WHERE id = ?";
+
+    // Only settled content is relabeled so in-flight jobs and errors are left alone
+    private static final String UPDATE_CONTENT_SQL =
+            "UPDATE content SET status = ?, updated_at = NOW() WHERE id = ? AND status IN ('SAFE', 'FLAGGED', 'REVIEW')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final RuleEngineService ruleEngineService;
+    private final VerdictWaitService verdictWaitService;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int fetchSize;
+    private final int maxRowsPerSecond;
+    private final int maxFinishedJobs;
+
+    private final ExecutorService jobRunner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "relabel-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<UUID, RelabelJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicReference<RelabelJob> activeJob = new AtomicReference<>();
+
+    public RelabelService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            RuleEngineService ruleEngineService,
+            VerdictWaitService verdictWaitService,
+            @Value("${relabel.chunk-size:1000}") int chunkSize,
+            @Value("${relabel.parallelism:4}") int parallelism,
+            @Value("${relabel.fetch-size:2000}") int fetchSize,
+            @Value("${relabel.max-rows-per-second:0}") int maxRowsPerSecond,
+            @Value("${relabel.max-finished-jobs:20}") int maxFinishedJobs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ruleEngineService = ruleEngineService;
+        this.verdictWaitService = verdictWaitService;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.fetchSize = fetchSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.maxFinishedJobs = maxFinishedJobs;
+
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // Starts a re-labeling run against the current rule set; only one run may be active at a time
+    public RelabelJob startJob(boolean dryRun) {
+        RuleSet rules = ruleEngineService.getRuleSet();
+        RelabelJob job = new RelabelJob(UUID.randomUUID(), rules.getVersion(), dryRun);
+
+        if (!activeJob.compareAndSet(null, job)) {
+            throw new IllegalStateException("A relabel job is already running: " + activeJob.get().getId());
+        }
+
+        jobs.put(job.getId(), job);
+        jobRunner.submit(() -> run(job, rules));
+        log.info("Started relabel job - job_id: {}, rule_set_version: {}, dry_run: {}",
+                job.getId(), rules.getVersion(), dryRun);
+        return job;
+    }
+
+    // Returns a job by ID, including the most recent finished ones from this node
+    public Optional<RelabelJob> getJob(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    // Requests cancellation; the reader stops at the next row and in-flight chunks finish
+    public Optional<RelabelJob> cancelJob(UUID jobId) {
+        RelabelJob job = jobs.get(jobId);
+        if (job != null) {
+            job.cancelRequested = true;
+        }
+        return Optional.ofNullable(job);
+    }
+
+    private void run(RelabelJob job, RuleSet rules) {
+        ExecutorService chunkPool = Executors.newFixedThreadPool(parallelism);
+        // Bounds the number of chunks buffered ahead of the writers so the reader cannot outrun them
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        long startNanos = System.nanoTime();
+
+        try {
+            ChunkingRowHandler handler = new ChunkingRowHandler(job, rules, chunkPool, inFlight, startNanos);
+
+            // PostgreSQL only streams with a cursor inside a transaction and with a fetch size set
+            readTransaction.executeWithoutResult(status -> jdbcTemplate.query(
+                    connection -> {
+                        PreparedStatement statement = connection.prepareStatement(
+                                SCAN_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                        statement.setFetchSize(fetchSize);
+                        return statement;
+                    },
+                    handler::processRow));
+            handler.flush();
+        } catch (Exception e) {
+            if (!job.cancelRequested && job.error == null) {
+                job.error = e.getMessage();
+                log.error("Relabel job failed - job_id: {}", job.getId(), e);
+            }
+        } finally {
+            // Wait for chunks already handed to the writers before reporting the final counts
+            inFlight.acquireUninterruptibly(parallelism * 2);
+            chunkPool.shutdown();
+            job.state = job.error != null ? State.FAILED
+                    : job.cancelRequested ? State.CANCELLED
+                    : State.COMPLETED;
+            job.finishedAt = LocalDateTime.now();
+            evictFinishedJobs();
+            activeJob.compareAndSet(job, null);
+            log.info("Relabel job finished - job_id: {}, state: {}, scanned: {}, changed: {}",
+                    job.getId(), job.state, job.scanned.get(), job.changed.get());
+        }
+    }
+
+    // Keeps only the relabel.max-finished-jobs most recently finished jobs for status lookups
+    private void evictFinishedJobs() {
+        List<RelabelJob> finished = jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted(Comparator.comparing(RelabelJob::getFinishedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - maxFinishedJobs; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+
+    // Collects streamed rows into chunks and hands each full chunk to the writer pool
+    private class ChunkingRowHandler {
+
+        private final RelabelJob job;
+        private final RuleSet rules;
+        private final ExecutorService chunkPool;
+        private final Semaphore inFlight;
+        private final long startNanos;
+        private Chunk chunk;
+        private long rowsRead;
+
+        ChunkingRowHandler(RelabelJob job, RuleSet rules, ExecutorService chunkPool,
+                           Semaphore inFlight, long startNanos) {
+            this.job = job;
+            this.rules = rules;
+            this.chunkPool = chunkPool;
+            this.inFlight = inFlight;
+            this.startNanos = startNanos;
+            this.chunk = new Chunk(chunkSize);
+        }
+
+        void processRow(ResultSet rs) throws SQLException {
+            if (job.cancelRequested || job.error != null) {
+                throw new IllegalStateException("Relabel job stopped");
+            }
+
+            chunk.add(rs);
+            rowsRead++;
+
+            if (chunk.size == chunkSize) {
+                submit(chunk);
+                chunk = new Chunk(chunkSize);
+                throttle();
+            }
+        }
+
+        // Hands the final partial chunk to the writers once the cursor is exhausted
+        void flush() {
+            if (chunk.size > 0) {
+                submit(chunk);
+                chunk = new Chunk(0);
+            }
+        }
+
+        private void submit(Chunk full) {
+            inFlight.acquireUninterruptibly();
+            chunkPool.submit(() -> {
+                try {
+                    applyChunk(job, rules, full);
+                } catch (Exception e) {
+                    job.error = e.getMessage();
+                    log.error("Relabel chunk failed - job_id: {}", job.getId(), e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        // Sleeps the reader when it is ahead of the configured rows-per-second budget
+        private void throttle() {
+            if (maxRowsPerSecond <= 0) {
+                return;
+            }
+            long expectedNanos = rowsRead * 1_000_000_000L / maxRowsPerSecond;
+            long aheadMillis = (expectedNanos - (System.nanoTime() - startNanos)) / 1_000_000;
+            if (aheadMillis > 0) {
+                try {
+                    Thread.sleep(aheadMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Relabel job interrupted", e);
+                }
+            }
+        }
+    }
+
+    // Evaluates one chunk and writes only the rows whose label changed, in a single transaction
+    private void applyChunk(RelabelJob job, RuleSet rules, Chunk chunk) {
+        List<Object[]> resultUpdates = new ArrayList<>();
+        List<Object[]> contentUpdates = new ArrayList<>();
+        float[] scores = new float[ScoreVector.SIZE];
+
+        for (int i = 0; i < chunk.size; i++) {
+            System.arraycopy(chunk.scores, i * ScoreVector.SIZE, scores, 0, ScoreVector.SIZE);
+            ModerationResult.ModerationLabel label = rules.forChannel(chunk.channels[i]).getPolicy()
+                    .evaluate(scores, chunk.types[i], chunk.segments[i]);
+
+            if (!label.name().equals(chunk.labels[i])) {
+                resultUpdates.add(new Object[]{label.name(), chunk.resultIds[i]});
+                contentUpdates.add(new Object[]{Content.ContentStatus.fromLabel(label).name(), chunk.contentIds[i]});
+            }
+        }
+
+        if (!job.dryRun && !resultUpdates.isEmpty()) {
+            int[] updated = writeTransaction.execute(status -> {
+                jdbcTemplate.batchUpdate(UPDATE_RESULT_SQL, resultUpdates);
+                return jdbcTemplate.batchUpdate(UPDATE_CONTENT_SQL, contentUpdates);
+            });
+
+            Map<UUID, Content.ContentStatus> statuses = new HashMap<>();
+            for (int i = 0; i < contentUpdates.size(); i++) {
+                // Items that left the settled statuses meanwhile were not touched
+                if (updated == null || updated[i] != 0) {
+                    Object[] row = contentUpdates.get(i);
+                    statuses.put((UUID) row[1], Content.ContentStatus.valueOf((String) row[0]));
+                }
+            }
+            verdictWaitService.publishStatuses(statuses);
+        }
+
+        job.scanned.addAndGet(chunk.size);
+        job.changed.addAndGet(resultUpdates.size());
+        job.chunks.incrementAndGet();
+    }
+
+    // Column-oriented buffer of streamed rows, so a chunk is a handful of arrays rather than row objects
+    private static final class Chunk {
+
+        final UUID[] resultIds;
+        final UUID[] contentIds;
+        final float[] scores;
+        final String[] labels;
+        final Content.ContentType[] types;
+        final String[] segments;
+        final String[] channels;
+        int size;
+
+        Chunk(int capacity) {
+            resultIds = new UUID[capacity];
+            contentIds = new UUID[capacity];
+            scores = new float[capacity * ScoreVector.SIZE];
+            labels = new String[capacity];
+            types = new Content.ContentType[capacity];
+            segments = new String[capacity];
+            channels = new String[capacity];
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            int offset = size * ScoreVector.SIZE;
+            resultIds[size] = rs.getObject(1, UUID.class);
+            contentIds[size] = rs.getObject(2, UUID.class);
+            scores[offset + ScoreVector.TOXICITY] = rs.getFloat(3);
+            scores[offset + ScoreVector.HATE] = rs.getFloat(4);
+            scores[offset + ScoreVector.SEXUAL] = rs.getFloat(5);
+            scores[offset + ScoreVector.VIOLENCE] = rs.getFloat(6);
+            labels[size] = rs.getString(7);
+            types[size] = Content.ContentType.valueOf(rs.getString(8));
+            segments[size] = rs.getString(9);
+            channels[size] = rs.getString(10);
+            size++;
+        }
+    }
+
+    public enum State {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    // Progress of one re-labeling run, updated concurrently by the reader and the chunk writers
+    public static final class RelabelJob {
+
+        private final UUID id;
+        private final long ruleSetVersion;
+        private final boolean dryRun;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong changed = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private volatile State state = State.RUNNING;
+        private volatile boolean cancelRequested;
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+
+        RelabelJob(UUID id, long ruleSetVersion, boolean dryRun) {
+            this.id = id;
+            this.ruleSetVersion = ruleSetVersion;
+            this.dryRun = dryRun;
+        }
+
+        public UUID getId() { return id; }
+        public long getRuleSetVersion() { return ruleSetVersion; }
+        public boolean isDryRun() { return dryRun; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public long getScanned() { return scanned.get(); }
+        public long getChanged() { return changed.get(); }
+        public long getChunks() { return chunks.get(); }
+        public State getState() { return state; }
+        public String getError() { return error; }
+    }
+}
@@ -0,0 +1,339 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.ArchivedContent;
+import com.crowdshield.repository.ArchivedContentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Moves settled content older than retention.max-age-days out of the hot tables. Each batch of
+ * content rows, together with its moderation results and admin actions, is written to one gzip
+ * archive laid out column by column (one array per column, which compresses far better than row
+ * objects), then deleted from content, moderation_results, admin_actions and moderation_jobs.
+ * Archives are stored in content_archive_files, in the same transaction that deletes the rows and
+ * records them in the content_archive index, so a batch is archived completely or not at all and
+ * every node can read every archive. Texts are copied from text_blobs into the archive, and blobs
+ * no longer referenced are removed. Archived items stay retrievable by content ID through the index.
+ */
+@Slf4j
+@Service
+public class RetentionService {
+
+    private static final String SELECT_CONTENT_SQL =
+            "SELECT id, user_id, type, text_content, text_hash, image_url, user_segment, channel, status, created_at, updated_at "
+                    + "FROM content WHERE created_at < ? AND status IN ('SAFE', 'FLAGGED', 'REVIEW', 'ERROR') "
+                    + "ORDER BY created_at, id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String SELECT_RESULTS_SQL =
+            "SELECT content_id, id, toxicity_score, hate_score, sexual_score, violence_score, overall_label, "
+                    + "raw_response::text AS raw_response, raw_encoded, created_at FROM moderation_results WHERE content_id IN ";
+
+    private static final String SELECT_ACTIONS_SQL =
+            "SELECT content_id, id, admin_id, previous_label, new_label, note, created_at "
+                    + "FROM admin_actions WHERE content_id IN ";
+
+    private static final String INSERT_FILE_SQL =
+            "INSERT INTO content_archive_files (file_name, data, row_count, archived_at) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_FILE_SQL = "SELECT data FROM content_archive_files WHERE file_name = ?";
+
+    // Locks the candidate blobs first, so the reference check below sees every content row written by a
+    // submission that reused one of them (TextBlobService locks a blob it reuses until its row commits)
+    private static final String LOCK_BLOBS_SQL = "SELECT hash FROM text_blobs WHERE hash IN %s ORDER BY hash FOR UPDATE";
+
+    private static final String DELETE_BLOBS_SQL =
+            "DELETE FROM text_blobs b WHERE b.hash IN %s AND NOT EXISTS (SELECT 1 FROM content c WHERE c.text_hash = b.hash)";
+
+    private static final String INSERT_INDEX_SQL =
+            "INSERT INTO content_archive (content_id, archive_file, row_index, created_at, archived_at) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final ArchivedContentRepository archivedContentRepository;
+    private final TextBlobService textBlobService;
+    private final boolean enabled;
+    private final int maxAgeDays;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public RetentionService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ArchivedContentRepository archivedContentRepository,
+            TextBlobService textBlobService,
+            @Value("${retention.enabled:false}") boolean enabled,
+            @Value("${retention.max-age-days:365}") int maxAgeDays,
+            @Value("${retention.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.archivedContentRepository = archivedContentRepository;
+        this.textBlobService = textBlobService;
+        this.enabled = enabled;
+        this.maxAgeDays = maxAgeDays;
+        this.batchSize = batchSize;
+    }
+
+    // Nightly run; does nothing unless retention.enabled is set
+    @Scheduled(cron = "${retention.cron:0 30 3 * * *}")
+    public void runScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            run();
+        } catch (Exception e) {
+            log.error("Retention run failed: {}", e.getMessage());
+        }
+    }
+
+    // Archives and deletes all settled content older than the cutoff, one batch per transaction
+    public RetentionRun run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A retention run is already in progress");
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+
+            long archived = 0;
+            int files = 0;
+            while (true) {
+                Integer rows = writeTransaction.execute(status -> archiveBatch(cutoff));
+                if (rows == null || rows == 0) {
+                    break;
+                }
+                archived += rows;
+                files++;
+                if (rows < batchSize) {
+                    break;
+                }
+            }
+
+            log.info("Retention run finished - cutoff: {}, archived: {}, files: {}", cutoff, archived, files);
+            return new RetentionRun(cutoff, archived, files);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Returns an archived item (content row, moderation results and admin actions) by content ID
+    public Optional<Map<String, Object>> findArchived(UUID contentId) {
+        Optional<ArchivedContent> entry = archivedContentRepository.findById(contentId);
+        if (entry.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<byte[]> data = jdbcTemplate.query(SELECT_FILE_SQL, (rs, rowNum) -> rs.getBytes(1), entry.get().getArchiveFile());
+        if (data.isEmpty()) {
+            throw new IllegalStateException("Archive " + entry.get().getArchiveFile() + " is missing");
+        }
+        Map<String, Object> document;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data.get(0)))) {
+            document = readDocument(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int row = entry.get().getRowIndex();
+        Map<String, Object> archived = new LinkedHashMap<>();
+        archived.put("content", rowOf(columnsOf(document, "content"), row));
+        archived.put("moderationResults", rowsFor(columnsOf(document, "moderation_results"), row));
+        archived.put("adminActions", rowsFor(columnsOf(document, "admin_actions"), row));
+        archived.put("archiveFile", entry.get().getArchiveFile());
+        archived.put("archivedAt", entry.get().getArchivedAt());
+        return Optional.of(archived);
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        Map<String, List<Object>> content = readColumns(SELECT_CONTENT_SQL, Timestamp.valueOf(cutoff), batchSize);
+        List<Object> ids = content.getOrDefault("id", List.of());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // Archive files are self-contained: texts stored in text_blobs are copied into text_content
+        List<Object> texts = content.get("text_content");
+        List<Object> textHashes = content.get("text_hash");
+        for (int i = 0; i < ids.size(); i++) {
+            if (texts.get(i) == null && textHashes.get(i) != null) {
+                texts.set(i, textBlobService.load((String) textHashes.get(i)).orElse(null));
+            }
+        }
+
+        Map<String, Integer> rowByContentId = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rowByContentId.put((String) ids.get(i), i);
+        }
+        String in = "(" + String.join(", ", Collections.nCopies(ids.size(), "CAST(? AS uuid)")) + ")";
+        Object[] idArgs = ids.toArray();
+
+        Map<String, List<Object>> results = toContentRows(readColumns(SELECT_RESULTS_SQL + in, idArgs), rowByContentId);
+        Map<String, List<Object>> actions = toContentRows(readColumns(SELECT_ACTIONS_SQL + in, idArgs), rowByContentId);
+
+        LocalDateTime archivedAt = LocalDateTime.now();
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("format", 1);
+        document.put("archivedAt", archivedAt.toString());
+        document.put("rows", ids.size());
+        document.put("content", content);
+        document.put("moderation_results", results);
+        document.put("admin_actions", actions);
+        String fileName = writeArchive(document, archivedAt);
+
+        List<Object[]> index = new ArrayList<>(ids.size());
+        List<Object> createdAt = content.get("created_at");
+        for (int i = 0; i < ids.size(); i++) {
+            index.add(new Object[]{
+                    UUID.fromString((String) ids.get(i)), fileName, i,
+                    Timestamp.valueOf(LocalDateTime.parse((String) createdAt.get(i))), Timestamp.valueOf(archivedAt)
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_INDEX_SQL, index);
+
+        jdbcTemplate.update("DELETE FROM admin_actions WHERE content_id IN " + in, idArgs);
+        jdbcTemplate.update("DELETE FROM moderation_results WHERE content_id IN " + in, idArgs);
+        jdbcTemplate.update("DELETE FROM moderation_jobs WHERE content_id IN " + in, idArgs);
+        jdbcTemplate.update("DELETE FROM content WHERE id IN " + in, idArgs);
+        deleteUnreferencedBlobs(textHashes);
+
+        log.info("Archived content batch - rows: {}, results: {}, actions: {}, file: {}", ids.size(),
+                results.getOrDefault("id", List.of()).size(), actions.getOrDefault("id", List.of()).size(), fileName);
+        return ids.size();
+    }
+
+    // Removes the blobs of archived texts that no remaining content row references
+    private void deleteUnreferencedBlobs(List<Object> textHashes) {
+        Object[] hashes = textHashes.stream().filter(Objects::nonNull).distinct().toArray();
+        if (hashes.length == 0) {
+            return;
+        }
+        String in = "(" + String.join(", ", Collections.nCopies(hashes.length, "?")) + ")";
+        jdbcTemplate.queryForList(String.format(LOCK_BLOBS_SQL, in), String.class, hashes);
+        int deleted = jdbcTemplate.update(String.format(DELETE_BLOBS_SQL, in), hashes);
+        log.debug("Deleted unreferenced text blobs - count: {}", deleted);
+    }
+
+    // Reads a query into one list per column, in select order
+    private Map<String, List<Object>> readColumns(String sql, Object... args) {
+        Map<String, List<Object>> columns = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                columns.computeIfAbsent(meta.getColumnLabel(i), k -> new ArrayList<>()).add(toArchiveValue(rs.getObject(i)));
+            }
+        }, args);
+        return columns;
+    }
+
+    // Replaces the content_id column of a child table with the row of its content item in the same file
+    private Map<String, List<Object>> toContentRows(Map<String, List<Object>> columns, Map<String, Integer> rowByContentId) {
+        List<Object> contentIds = columns.remove("content_id");
+        List<Object> contentRows = new ArrayList<>();
+        if (contentIds != null) {
+            contentIds.forEach(id -> contentRows.add(rowByContentId.get((String) id)));
+        }
+        Map<String, List<Object>> mapped = new LinkedHashMap<>();
+        mapped.put("content_row", contentRows);
+        mapped.putAll(columns);
+        return mapped;
+    }
+
+    private Object toArchiveValue(Object value) {
+        if (value == null || value instanceof Number || value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime().toString();
+        }
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+        return value.toString();
+    }
+
+    // Compresses the archive and stores it in the current transaction, next to the index rows pointing into it
+    private String writeArchive(Map<String, Object> document, LocalDateTime archivedAt) {
+        String fileName = "content-" + archivedAt.format(FILE_TIMESTAMP) + "-"
+                + UUID.randomUUID().toString().substring(0, 8) + ".json.gz";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, document);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode archive " + fileName, e);
+        }
+        jdbcTemplate.update(INSERT_FILE_SQL, fileName, bytes.toByteArray(), document.get("rows"), Timestamp.valueOf(archivedAt));
+        return fileName;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readDocument(InputStream in) throws IOException {
+        return objectMapper.readValue(in, Map.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, List<Object>> columnsOf(Map<String, Object> document, String table) {
+        return (Map<String, List<Object>>) document.getOrDefault(table, Map.of());
+    }
+
+    private Map<String, Object> rowOf(Map<String, List<Object>> columns, int row) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        columns.forEach((column, list) -> values.put(column, list.get(row)));
+        return values;
+    }
+
+    // Returns the child rows belonging to the given content row
+    private List<Map<String, Object>> rowsFor(Map<String, List<Object>> columns, int contentRow) {
+        List<Object> contentRows = columns.getOrDefault("content_row", List.of());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < contentRows.size(); i++) {
+            if (contentRows.get(i) instanceof Number && ((Number) contentRows.get(i)).intValue() == contentRow) {
+                Map<String, Object> values = rowOf(columns, i);
+                values.remove("content_row");
+                rows.add(values);
+            }
+        }
+        return rows;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RetentionRun {
+        private final LocalDateTime cutoff;
+        private final long archived;
+        private final int files;
+    }
+}
@@ -1,52 +1,265 @@
 package com.crowdshield.service;
 
 import com.crowdshield.api.dto.ModerationScores;
+import com.crowdshield.model.Content;
 import com.crowdshield.model.ModerationResult;
 import com.crowdshield.model.ModerationRule;
+import com.crowdshield.queue.RedisKeys;
 import com.crowdshield.repository.ModerationRuleRepository;
+import com.crowdshield.rules.CompiledPolicy;
+import com.crowdshield.rules.PolicyCompiler;
+import com.crowdshield.rules.ScoreVector;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
+/*
+ * Evaluates scores against an in-memory rule set holding the global default and every channel rule.
+ * Every change to moderation_rules bumps a counter in rule_set_version from a statement trigger, in the
+ * same transaction, so the counter orders rule sets by commit and covers edits made outside this service.
+ * Reloads run on change notifications, after local updates and on a schedule; each reads the rules and
+ * the counter from one snapshot, and a load replaces the current set only if its version is higher.
+ */
 @Slf4j
 @Service
 public class RuleEngineService {
 
+    private static final Comparator<ModerationRule> BY_UPDATED_AT = Comparator.comparing(
+            ModerationRule::getUpdatedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()));
+
+    private static final String INSTALL_LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('rule_set_version.install'))";
+
+    private static final String CREATE_VERSION_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS rule_set_version (id INT PRIMARY KEY CHECK (id = 1), version BIGINT NOT NULL)";
+
+    private static final String SEED_VERSION_SQL =
+            "INSERT INTO rule_set_version (id, version) VALUES (1, 1) ON CONFLICT (id) DO NOTHING";
+
+    private static final String CREATE_VERSION_FUNCTION_SQL =
+            "CREATE OR REPLACE FUNCTION bump_rule_set_version() RETURNS trigger AS $$ "
+                    + "BEGIN UPDATE rule_set_version SET version = version + 1 WHERE id = 1; RETURN NULL; END; "
+                    + "$$ LANGUAGE plpgsql";
+
+    private static final String VERSION_TRIGGER_EXISTS_SQL =
+            "SELECT COUNT(*) FROM pg_trigger WHERE tgname = 'trg_moderation_rules_version'";
+
+    private static final String CREATE_VERSION_TRIGGER_SQL =
+            "CREATE TRIGGER trg_moderation_rules_version AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE "
+                    + "ON moderation_rules FOR EACH STATEMENT EXECUTE FUNCTION bump_rule_set_version()";
+
+    private static final String SELECT_VERSION_SQL = "SELECT version FROM rule_set_version WHERE id = 1";
+
     private final ModerationRuleRepository ruleRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransaction;
 
-    public RuleEngineService(ModerationRuleRepository ruleRepository) {
+    // Immutable default and per-channel snapshots used by evaluate(), swapped as a whole whenever any rule changes
+    private volatile RuleSet ruleSet;
+
+    public RuleEngineService(
+            ModerationRuleRepository ruleRepository,
+            RedisTemplate<String, String> redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager) {
         this.ruleRepository = ruleRepository;
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> {
+                    log.info("Received rule change notification, reloading rule set");
+                    reloadRules();
+                },
+                new ChannelTopic(RedisKeys.RULES_CHANGED_CHANNEL));
+    }
+
+    // Installs the rule set version counter and its trigger before anything evaluates rules; a failure aborts
+    // startup, since without the counter no reload could be ordered
+    @PostConstruct
+    public void install() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute(INSTALL_LOCK_SQL);
+            jdbcTemplate.execute(CREATE_VERSION_TABLE_SQL);
+            jdbcTemplate.execute(SEED_VERSION_SQL);
+            jdbcTemplate.execute(CREATE_VERSION_FUNCTION_SQL);
+            Integer triggers = jdbcTemplate.queryForObject(VERSION_TRIGGER_EXISTS_SQL, Integer.class);
+            if (triggers == null || triggers == 0) {
+                jdbcTemplate.execute(CREATE_VERSION_TRIGGER_SQL);
+                log.info("Installed rule set version trigger");
+            }
+        });
     }
 
-    // Evaluates moderation scores against configured thresholds and returns SAFE or FLAGGED label
-    public ModerationResult.ModerationLabel evaluate(ModerationScores scores) {
-        ModerationRule rule = getLatestRule();
-        
-        boolean isFlagged = scores.getToxicityScore() > rule.getToxicityThreshold()
-                || scores.getHateScore() > rule.getHateThreshold()
-                || scores.getSexualScore() > rule.getSexualThreshold()
-                || scores.getViolenceScore() > rule.getViolenceThreshold();
-
-        ModerationResult.ModerationLabel label = isFlagged 
-                ? ModerationResult.ModerationLabel.FLAGGED 
-                : ModerationResult.ModerationLabel.SAFE;
-
-        log.info("Rule engine evaluation - toxicity: {}, hate: {}, sexual: {}, violence: {}, label: {}", 
-                scores.getToxicityScore(), scores.getHateScore(), 
+    // Evaluates moderation scores against the policy of the content's channel and returns SAFE, REVIEW or FLAGGED label
+    public ModerationResult.ModerationLabel evaluate(ModerationScores scores, Content.ContentType contentType,
+                                                     String userSegment, String channel) {
+        ModerationResult.ModerationLabel label = getSnapshot(channel).getPolicy()
+                .evaluate(ScoreVector.of(scores), contentType, userSegment);
+
+        log.info("Rule engine evaluation - channel: {}, toxicity: {}, hate: {}, sexual: {}, violence: {}, label: {}", 
+                channel, scores.getToxicityScore(), scores.getHateScore(), 
                 scores.getSexualScore(), scores.getViolenceScore(), label);
 
         return label;
     }
 
-    // Retrieves the most recent moderation rule or returns default thresholds if none exists
-    public ModerationRule getLatestRule() {
-        Optional<ModerationRule> ruleOpt = ruleRepository.findTopByOrderByUpdatedAtDesc();
-        if (ruleOpt.isPresent()) {
-            return ruleOpt.get();
+    // Returns the in-memory rule set, loading it from the database on first use
+    public RuleSet getRuleSet() {
+        RuleSet current = ruleSet;
+        if (current == null) {
+            current = reloadRules();
+        }
+        return current;
+    }
+
+    // Returns the snapshot for a channel; channels without their own rule use the global default
+    public RuleSnapshot getSnapshot(String channel) {
+        return getRuleSet().forChannel(channel);
+    }
+
+    // Reloads on a fixed interval as a backstop for missed change notifications; a no-op when nothing changed
+    @Scheduled(fixedDelayString = "${rules.reload-interval-ms:60000}",
+            initialDelayString = "${rules.reload-interval-ms:60000}")
+    public void reloadPeriodically() {
+        try {
+            reloadRules();
+        } catch (Exception e) {
+            log.error("Periodic rule reload failed: {}", e.getMessage());
         }
+    }
 
-        // Return default rule if none exists
+    // Reads all rules and their version from one snapshot and atomically replaces the in-memory rule set,
+    // unless the current set is the same or a newer version; returns the set in use afterwards
+    public RuleSet reloadRules() {
+        return apply(snapshotTransaction.execute(status -> load()));
+    }
+
+    private RuleSet load() {
+        Long version = jdbcTemplate.queryForObject(SELECT_VERSION_SQL, Long.class);
+        ModerationRule defaults = null;
+        Map<String, ModerationRule> latestByChannel = new HashMap<>();
+
+        for (ModerationRule rule : ruleRepository.findAll()) {
+            if (rule.getChannel() == null) {
+                if (defaults == null || BY_UPDATED_AT.compare(rule, defaults) > 0) {
+                    defaults = rule;
+                }
+            } else {
+                latestByChannel.merge(rule.getChannel(), rule,
+                        (current, other) -> BY_UPDATED_AT.compare(other, current) > 0 ? other : current);
+            }
+        }
+
+        Map<String, RuleSnapshot> channels = new HashMap<>();
+        latestByChannel.forEach((channel, rule) -> channels.put(channel, RuleSnapshot.from(rule)));
+
+        return new RuleSet(version != null ? version : 0,
+                RuleSnapshot.from(defaults != null ? defaults : defaultRule()), channels);
+    }
+
+    // Installs a freshly loaded rule set if it is a newer version than the current one
+    private synchronized RuleSet apply(RuleSet loaded) {
+        RuleSet current = ruleSet;
+        if (current != null && loaded.getVersion() <= current.getVersion()) {
+            log.debug("Keeping rule set version {} - loaded version {} is not newer",
+                    current.getVersion(), loaded.getVersion());
+            return current;
+        }
+        ruleSet = loaded;
+
+        log.info("Loaded rule set - version: {}, default_rule_id: {}, channels: {}",
+                loaded.getVersion(), loaded.getDefaults().getRuleId(), loaded.getChannels().keySet());
+        return loaded;
+    }
+
+    // Compiles a candidate rule without saving it; unset thresholds default to the channel's current ones
+    public CompiledPolicy compileCandidate(String channel, Float toxicityThreshold, Float hateThreshold,
+                                           Float sexualThreshold, Float violenceThreshold, String policy) {
+        if (policy != null && !policy.isBlank()) {
+            return PolicyCompiler.compile(policy);
+        }
+
+        RuleSnapshot current = getSnapshot(channel);
+        return PolicyCompiler.compile(PolicyCompiler.thresholdPolicy(
+                toxicityThreshold != null ? toxicityThreshold : current.getToxicityThreshold(),
+                hateThreshold != null ? hateThreshold : current.getHateThreshold(),
+                sexualThreshold != null ? sexualThreshold : current.getSexualThreshold(),
+                violenceThreshold != null ? violenceThreshold : current.getViolenceThreshold()));
+    }
+
+    // Retrieves the most recent rule for a channel, falling back to the global rule and then to default thresholds
+    public ModerationRule getLatestRule(String channel) {
+        if (channel != null) {
+            Optional<ModerationRule> channelRule = ruleRepository.findTopByChannelOrderByUpdatedAtDesc(channel);
+            if (channelRule.isPresent()) {
+                return channelRule.get();
+            }
+        }
+
+        return ruleRepository.findTopByChannelIsNullOrderByUpdatedAtDesc()
+                .orElseGet(this::defaultRule);
+    }
+
+    // Updates the rule for a channel (null for the global default), saves to database and notifies all nodes to reload
+    public ModerationRule updateRule(String channel, Float toxicityThreshold, Float hateThreshold, 
+                                     Float sexualThreshold, Float violenceThreshold, String policy) {
+        // Reject a policy that does not compile before anything is persisted
+        if (policy != null && !policy.isBlank()) {
+            PolicyCompiler.compile(policy);
+        }
+
+        ModerationRule rule = getLatestRule(channel);
+        if (channel != null && !channel.equals(rule.getChannel())) {
+            // First rule for a channel starts as a copy of the global one
+            rule = ModerationRule.builder()
+                    .channel(channel)
+                    .toxicityThreshold(rule.getToxicityThreshold())
+                    .hateThreshold(rule.getHateThreshold())
+                    .sexualThreshold(rule.getSexualThreshold())
+                    .violenceThreshold(rule.getViolenceThreshold())
+                    .policy(rule.getPolicy())
+                    .build();
+        }
+
+        if (toxicityThreshold != null) rule.setToxicityThreshold(toxicityThreshold);
+        if (hateThreshold != null) rule.setHateThreshold(hateThreshold);
+        if (sexualThreshold != null) rule.setSexualThreshold(sexualThreshold);
+        if (violenceThreshold != null) rule.setViolenceThreshold(violenceThreshold);
+        // An empty policy clears it and falls back to the four thresholds
+        if (policy != null) rule.setPolicy(policy.isBlank() ? null : policy);
+
+        // The thresholds are compiled into a policy on every reload, so they must compile before they are saved
+        PolicyCompiler.compile(PolicyCompiler.thresholdPolicy(rule.getToxicityThreshold(), rule.getHateThreshold(),
+                rule.getSexualThreshold(), rule.getViolenceThreshold()));
+
+        ModerationRule saved = ruleRepository.save(rule);
+        reloadRules();
+        publishRuleChange(saved);
+
+        return saved;
+    }
+
+    private ModerationRule defaultRule() {
         return ModerationRule.builder()
                 .toxicityThreshold(0.7f)
                 .hateThreshold(0.6f)
@@ -55,17 +268,12 @@ public class RuleEngineService {
                 .build();
     }
 
-    // Updates moderation rule thresholds with provided values and saves to database
-    public ModerationRule updateRule(Float toxicityThreshold, Float hateThreshold, 
-                                     Float sexualThreshold, Float violenceThreshold) {
-        ModerationRule rule = getLatestRule();
-        
-        if (toxicityThreshold != null) rule.setToxicityThreshold(toxicityThreshold);
-        if (hateThreshold != null) rule.setHateThreshold(hateThreshold);
-        if (sexualThreshold != null) rule.setSexualThreshold(sexualThreshold);
-        if (violenceThreshold != null) rule.setViolenceThreshold(violenceThreshold);
-
-        return ruleRepository.save(rule);
+    // Publishes a rule change so other nodes reload; a failed publish only delays their refresh
+    private void publishRuleChange(ModerationRule rule) {
+        try {
+            redisTemplate.convertAndSend(RedisKeys.RULES_CHANGED_CHANNEL, String.valueOf(rule.getId()));
+        } catch (Exception e) {
+            log.warn("Failed to publish rule change notification - rule_id: {}, error: {}", rule.getId(), e.getMessage());
+        }
     }
 }
-
@@ -0,0 +1,47 @@
+package com.crowdshield.service;
+
+import java.util.Map;
+
+/*
+ * Immutable set of rule snapshots for one load of moderation_rules: the global default plus one
+ * snapshot per channel. Replaced as a whole on every reload, so a job sees one consistent version.
+ * The version is the rule_set_version counter read in the same snapshot as the rules, so it is the
+ * same on every node and orders loads by the data they saw.
+ */
+public final class RuleSet {
+
+    private final long version;
+    private final RuleSnapshot defaults;
+    private final Map<String, RuleSnapshot> channels;
+
+    public RuleSet(long version, RuleSnapshot defaults, Map<String, RuleSnapshot> channels) {
+        this.version = version;
+        this.defaults = defaults;
+        this.channels = Map.copyOf(channels);
+    }
+
+    // Returns the rules for a channel, or the global default when the channel has none of its own
+    public RuleSnapshot forChannel(String channel) {
+        if (channel == null) {
+            return defaults;
+        }
+        RuleSnapshot snapshot = channels.get(channel);
+        return snapshot != null ? snapshot : defaults;
+    }
+
+    public boolean hasChannel(String channel) {
+        return channel != null && channels.containsKey(channel);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public RuleSnapshot getDefaults() {
+        return defaults;
+    }
+
+    public Map<String, RuleSnapshot> getChannels() {
+        return channels;
+    }
+}
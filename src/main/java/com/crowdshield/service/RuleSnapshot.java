@@ -0,0 +1,60 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.ModerationRule;
+import com.crowdshield.rules.CompiledPolicy;
+import com.crowdshield.rules.PolicyCompileException;
+import com.crowdshield.rules.PolicyCompiler;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Value
+public class RuleSnapshot {
+
+    Integer ruleId;
+    String channel;
+    LocalDateTime updatedAt;
+    float toxicityThreshold;
+    float hateThreshold;
+    float sexualThreshold;
+    float violenceThreshold;
+    CompiledPolicy policy;
+
+    // Copies thresholds out of a rule entity and compiles its policy once for this rule version
+    public static RuleSnapshot from(ModerationRule rule) {
+        float toxicity = rule.getToxicityThreshold();
+        float hate = rule.getHateThreshold();
+        float sexual = rule.getSexualThreshold();
+        float violence = rule.getViolenceThreshold();
+
+        return new RuleSnapshot(
+                rule.getId(),
+                rule.getChannel(),
+                rule.getUpdatedAt(),
+                toxicity,
+                hate,
+                sexual,
+                violence,
+                compile(rule, toxicity, hate, sexual, violence)
+        );
+    }
+
+    // Uses the stored policy when present, otherwise the equivalent of the four thresholds
+    private static CompiledPolicy compile(ModerationRule rule, float toxicity, float hate, float sexual, float violence) {
+        String thresholdPolicy = PolicyCompiler.thresholdPolicy(toxicity, hate, sexual, violence);
+        if (rule.getPolicy() == null || rule.getPolicy().isBlank()) {
+            return PolicyCompiler.compile(thresholdPolicy);
+        }
+
+        try {
+            return PolicyCompiler.compile(rule.getPolicy());
+        } catch (PolicyCompileException e) {
+            // Policies are validated on update, so this only happens for rows edited directly in the database
+            log.error("Stored policy for rule_id {} does not compile, falling back to thresholds: {}",
+                    rule.getId(), e.getMessage());
+            return PolicyCompiler.compile(thresholdPolicy);
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package com.crowdshield.service;
+
+import com.crowdshield.api.dto.ContentResponse;
+import com.crowdshield.api.dto.SimulationResponse;
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult;
+import com.crowdshield.rules.CompiledPolicy;
+import com.crowdshield.rules.ScoreVector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/*
+ * Answers "what would change if the rules were X" over every stored score without touching the database
+ * per query. Scores are kept as one primitive array per category (plus content ID, type, segment and
+ * channel columns), one row per content item with its latest scores as shown in moderation_view. Each
+ * refresh upserts the items whose scores changed since the previous one (moderation_view.scores_changed_at,
+ * re-reading simulation.change-overlap-ms back so changes that committed late are not skipped); a full
+ * reload every simulation.full-reload-interval-ms drops deleted content. Refreshes run on a schedule,
+ * starting when the application starts, so requests never load anything; a simulation reads the last
+ * published view and evaluates the current and candidate policies side by side over index ranges in
+ * parallel, restricted to the rows whose channel is governed by the rule being changed. Items are found
+ * for upserts through an open-addressing index of row numbers, so the index adds a few bytes per row
+ * rather than an object per item.
+ */
+@Slf4j
+@Service
+public class SimulationService {
+
+    private static final String LOAD_SQL =
+            "SELECT v.content_id, v.toxicity_score, v.hate_score, v.sexual_score, v.violence_score, "
+                    + "v.type, c.user_segment, v.channel "
+                    + "FROM moderation_view v JOIN content c ON c.id = v.content_id "
+                    + "WHERE v.result_at IS NOT NULL";
+
+    private static final String LOAD_CHANGED_SQL = LOAD_SQL + " AND v.scores_changed_at >= ?";
+
+    private static final int RANGE_SIZE = 1 << 16;
+
+    // Labels ordered from least to most severe, used to classify a flip as stricter or looser
+    private static final ModerationResult.ModerationLabel[] SEVERITY = {
+            ModerationResult.ModerationLabel.SAFE,
+            ModerationResult.ModerationLabel.REVIEW,
+            ModerationResult.ModerationLabel.FLAGGED
+    };
+
+    private static final Content.ContentType[] TYPES = Content.ContentType.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final int fetchSize;
+    private final long refreshIntervalMs;
+    private final long changeOverlapMs;
+    private final long fullReloadIntervalMs;
+
+    // Writer-side state, only touched while holding the monitor in refresh()
+    private Columns columns = new Columns(1024);
+    private final RowIndex rowsByContent = new RowIndex();
+    private final List<String> segmentDictionary = new ArrayList<>();
+    private final Map<String, Integer> segmentIndex = new HashMap<>();
+    private final List<String> channelDictionary = new ArrayList<>();
+    private final Map<String, Integer> channelIndex = new HashMap<>();
+    // Database time at the start of the last load; null until the first full load
+    private Timestamp watermark;
+    private long lastRefreshMillis;
+    private long lastFullReloadMillis;
+
+    // Reader-side view, republished after every refresh
+    private volatile View view = new View(columns, 0, new String[0], new String[0], null);
+
+    public SimulationService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${simulation.fetch-size:5000}") int fetchSize,
+            @Value("${simulation.refresh-interval-ms:5000}") long refreshIntervalMs,
+            @Value("${simulation.change-overlap-ms:60000}") long changeOverlapMs,
+            @Value("${simulation.full-reload-interval-ms:3600000}") long fullReloadIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.changeOverlapMs = changeOverlapMs;
+        this.fullReloadIntervalMs = fullReloadIntervalMs;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    // Compares a channel's current policy (global default when channel is null) with a candidate over every
+    // stored score that the channel's rule governs, as of the last refresh
+    public SimulationResponse simulate(RuleSet ruleSet, String channel, CompiledPolicy candidate, int sampleSize) {
+        long start = System.currentTimeMillis();
+        View current = view;
+        CompiledPolicy baseline = ruleSet.forChannel(channel).getPolicy();
+        boolean[] scope = scope(current, ruleSet, channel);
+
+        int ranges = (current.size + RANGE_SIZE - 1) / RANGE_SIZE;
+        Partial total = IntStream.range(0, ranges)
+                .parallel()
+                .mapToObj(range -> evaluateRange(current, scope, baseline, candidate, range * RANGE_SIZE,
+                        Math.min(current.size, (range + 1) * RANGE_SIZE), sampleSize))
+                .reduce(new Partial(sampleSize), (a, b) -> a.merge(b, sampleSize));
+
+        return toResponse(total, current, System.currentTimeMillis() - start);
+    }
+
+    // Flags, per channel ID (offset by one so "no channel" is index 0), whether rows of that channel are governed
+    // by the rule under simulation: its own rows for a channel rule, otherwise every channel without a rule of its own
+    private static boolean[] scope(View v, RuleSet ruleSet, String channel) {
+        boolean[] scope = new boolean[v.channels.length + 1];
+        scope[0] = channel == null;
+        for (int i = 0; i < v.channels.length; i++) {
+            String rowChannel = v.channels[i];
+            scope[i + 1] = channel == null ? !ruleSet.hasChannel(rowChannel) : channel.equals(rowChannel);
+        }
+        return scope;
+    }
+
+    // Keeps the snapshot current in the background; the first run, right after startup, loads it
+    @Scheduled(fixedDelayString = "${simulation.refresh-interval-ms:5000}")
+    public void refreshPeriodically() {
+        try {
+            refresh(false);
+        } catch (Exception e) {
+            log.error("Score snapshot refresh failed: {}", e.getMessage());
+        }
+    }
+
+    // Upserts the items whose scores changed since the last refresh, or reloads everything when a full reload is
+    // due; skipped if one ran within the refresh interval unless forced
+    public synchronized void refresh(boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - lastRefreshMillis < refreshIntervalMs) {
+            return;
+        }
+
+        boolean full = watermark == null || now - lastFullReloadMillis >= fullReloadIntervalMs;
+        if (full) {
+            // Readers keep the previous arrays until the new view is published
+            columns = new Columns(Math.max(1024, columns.size));
+            rowsByContent.clear();
+        }
+        // Changes stamped shortly before the last load may have committed after it; read them again
+        Timestamp since = full ? null : new Timestamp(watermark.getTime() - changeOverlapMs);
+
+        int before = columns.size;
+        int[] changed = new int[1];
+        readTransaction.executeWithoutResult(status -> {
+            Timestamp loadStart = jdbcTemplate.queryForObject("SELECT now()", Timestamp.class);
+            jdbcTemplate.query(
+                    connection -> {
+                        PreparedStatement statement = connection.prepareStatement(
+                                full ? LOAD_SQL : LOAD_CHANGED_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                        statement.setFetchSize(fetchSize);
+                        if (!full) {
+                            statement.setTimestamp(1, since);
+                        }
+                        return statement;
+                    },
+                    rs -> {
+                        UUID contentId = rs.getObject(1, UUID.class);
+                        int row = rowsByContent.find(columns, contentId);
+                        if (row < 0) {
+                            row = columns.add(contentId);
+                            rowsByContent.put(columns, row);
+                        }
+                        columns.set(row,
+                                rs.getFloat(2), rs.getFloat(3), rs.getFloat(4), rs.getFloat(5),
+                                (byte) Content.ContentType.valueOf(rs.getString(6)).ordinal(),
+                                dictionaryId(segmentIndex, segmentDictionary, rs.getString(7)),
+                                dictionaryId(channelIndex, channelDictionary, rs.getString(8)));
+                        changed[0]++;
+                    });
+            watermark = loadStart;
+        });
+
+        lastRefreshMillis = now;
+        if (full) {
+            lastFullReloadMillis = now;
+        }
+        view = new View(columns, columns.size, segmentDictionary.toArray(new String[0]),
+                channelDictionary.toArray(new String[0]), LocalDateTime.now());
+
+        if (full) {
+            log.info("Reloaded score snapshot - total: {}", columns.size);
+        } else if (changed[0] > 0) {
+            log.info("Refreshed score snapshot - added: {}, read: {}, total: {}",
+                    columns.size - before, changed[0], columns.size);
+        }
+    }
+
+    private static int dictionaryId(Map<String, Integer> index, List<String> dictionary, String value) {
+        if (value == null) {
+            return -1;
+        }
+        return index.computeIfAbsent(value, key -> {
+            dictionary.add(key);
+            return dictionary.size() - 1;
+        });
+    }
+
+    private Partial evaluateRange(View v, boolean[] scope, CompiledPolicy baseline, CompiledPolicy candidate,
+                                  int from, int to, int sampleSize) {
+        Columns c = v.columns;
+        Partial partial = new Partial(sampleSize);
+        float[] scores = new float[ScoreVector.SIZE];
+
+        for (int i = from; i < to; i++) {
+            if (!scope[c.channels[i] + 1]) {
+                continue;
+            }
+            scores[ScoreVector.TOXICITY] = c.toxicity[i];
+            scores[ScoreVector.HATE] = c.hate[i];
+            scores[ScoreVector.SEXUAL] = c.sexual[i];
+            scores[ScoreVector.VIOLENCE] = c.violence[i];
+            Content.ContentType type = TYPES[c.types[i]];
+            String segment = c.segments[i] >= 0 ? v.segments[c.segments[i]] : null;
+
+            int before = severity(baseline.evaluate(scores, type, segment));
+            int after = severity(candidate.evaluate(scores, type, segment));
+            partial.transitions[before * SEVERITY.length + after]++;
+
+            if (before != after) {
+                int category = dominantCategory(scores);
+                if (after > before) {
+                    partial.stricter[category]++;
+                } else {
+                    partial.looser[category]++;
+                }
+                if (partial.samples.size() < sampleSize) {
+                    partial.samples.add(SimulationResponse.FlippedItem.builder()
+                            .contentId(new UUID(c.idHigh[i], c.idLow[i]))
+                            .fromLabel(SEVERITY[before].name())
+                            .toLabel(SEVERITY[after].name())
+                            .scores(new ContentResponse.Scores(scores[ScoreVector.TOXICITY], scores[ScoreVector.HATE],
+                                    scores[ScoreVector.SEXUAL], scores[ScoreVector.VIOLENCE]))
+                            .build());
+                }
+            }
+        }
+        return partial;
+    }
+
+    private static int severity(ModerationResult.ModerationLabel label) {
+        return switch (label) {
+            case SAFE -> 0;
+            case REVIEW -> 1;
+            case FLAGGED -> 2;
+        };
+    }
+
+    private static int dominantCategory(float[] scores) {
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private SimulationResponse toResponse(Partial total, View v, long elapsedMs) {
+        long[] baselineCounts = new long[SEVERITY.length];
+        long[] candidateCounts = new long[SEVERITY.length];
+        Map<String, Long> transitions = new LinkedHashMap<>();
+        long flipped = 0;
+        long rows = 0;
+
+        for (int from = 0; from < SEVERITY.length; from++) {
+            for (int to = 0; to < SEVERITY.length; to++) {
+                long count = total.transitions[from * SEVERITY.length + to];
+                baselineCounts[from] += count;
+                candidateCounts[to] += count;
+                rows += count;
+                if (from != to && count > 0) {
+                    transitions.put(SEVERITY[from].name() + "->" + SEVERITY[to].name(), count);
+                    flipped += count;
+                }
+            }
+        }
+
+        Map<String, SimulationResponse.CategoryBreakdown> categories = new LinkedHashMap<>();
+        for (int i = 0; i < ScoreVector.SIZE; i++) {
+            categories.put(ScoreVector.CATEGORIES.get(i), SimulationResponse.CategoryBreakdown.builder()
+                    .stricter(total.stricter[i])
+                    .looser(total.looser[i])
+                    .build());
+        }
+
+        SimulationResponse.LabelCounts baseline = labelCounts(baselineCounts, rows);
+        SimulationResponse.LabelCounts candidate = labelCounts(candidateCounts, rows);
+
+        return SimulationResponse.builder()
+                .rows(rows)
+                .baseline(baseline)
+                .candidate(candidate)
+                .flagRateDelta(candidate.getFlagRate() - baseline.getFlagRate())
+                .flipped(flipped)
+                .transitions(transitions)
+                .categories(categories)
+                .samples(total.samples)
+                .snapshotRefreshedAt(v.refreshedAt)
+                .elapsedMs(elapsedMs)
+                .build();
+    }
+
+    private static SimulationResponse.LabelCounts labelCounts(long[] counts, long rows) {
+        return SimulationResponse.LabelCounts.builder()
+                .safe(counts[0])
+                .review(counts[1])
+                .flagged(counts[2])
+                .flagRate(rows == 0 ? 0.0 : (double) counts[2] / rows)
+                .build();
+    }
+
+    // Growable column arrays; appends past a published size never disturb readers of that size. A changed item
+    // is overwritten in place, so a simulation running meanwhile may see its old or its new scores.
+    private static final class Columns {
+
+        long[] idHigh;
+        long[] idLow;
+        float[] toxicity;
+        float[] hate;
+        float[] sexual;
+        float[] violence;
+        byte[] types;
+        int[] segments;
+        int[] channels;
+        int size;
+
+        Columns(int capacity) {
+            allocate(capacity);
+        }
+
+        // Reserves the next row for a content item and returns its index; set() fills it before it is published
+        int add(UUID contentId) {
+            if (size == toxicity.length) {
+                grow();
+            }
+            idHigh[size] = contentId.getMostSignificantBits();
+            idLow[size] = contentId.getLeastSignificantBits();
+            return size++;
+        }
+
+        void set(int row, float tox, float h, float sex, float viol, byte type, int segment, int channel) {
+            toxicity[row] = tox;
+            hate[row] = h;
+            sexual[row] = sex;
+            violence[row] = viol;
+            types[row] = type;
+            segments[row] = segment;
+            channels[row] = channel;
+        }
+
+        // Replaces the arrays with larger copies so existing views keep reading the old ones
+        private void grow() {
+            int capacity = toxicity.length * 2;
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+            toxicity = Arrays.copyOf(toxicity, capacity);
+            hate = Arrays.copyOf(hate, capacity);
+            sexual = Arrays.copyOf(sexual, capacity);
+            violence = Arrays.copyOf(violence, capacity);
+            types = Arrays.copyOf(types, capacity);
+            segments = Arrays.copyOf(segments, capacity);
+            channels = Arrays.copyOf(channels, capacity);
+        }
+
+        private void allocate(int capacity) {
+            idHigh = new long[capacity];
+            idLow = new long[capacity];
+            toxicity = new float[capacity];
+            hate = new float[capacity];
+            sexual = new float[capacity];
+            violence = new float[capacity];
+            types = new byte[capacity];
+            segments = new int[capacity];
+            channels = new int[capacity];
+        }
+    }
+
+    // Open-addressing hash index from content ID to row. Slots hold only row numbers; IDs are compared against
+    // the ID columns, so the index costs about eight bytes per row at its load factor.
+    private static final class RowIndex {
+
+        private int[] slots = emptySlots(1024);
+        private int size;
+
+        void clear() {
+            slots = emptySlots(1024);
+            size = 0;
+        }
+
+        // Returns the row holding a content ID, or -1
+        int find(Columns c, UUID contentId) {
+            long high = contentId.getMostSignificantBits();
+            long low = contentId.getLeastSignificantBits();
+            int mask = slots.length - 1;
+            for (int i = hash(high, low) & mask; ; i = (i + 1) & mask) {
+                int row = slots[i];
+                if (row < 0) {
+                    return -1;
+                }
+                if (c.idHigh[row] == high && c.idLow[row] == low) {
+                    return row;
+                }
+            }
+        }
+
+        // Indexes a row whose content ID is not indexed yet
+        void put(Columns c, int row) {
+            if ((size + 1) * 2 > slots.length) {
+                int[] old = slots;
+                slots = emptySlots(old.length * 2);
+                for (int indexed : old) {
+                    if (indexed >= 0) {
+                        insert(c, indexed);
+                    }
+                }
+            }
+            insert(c, row);
+            size++;
+        }
+
+        private void insert(Columns c, int row) {
+            int mask = slots.length - 1;
+            int i = hash(c.idHigh[row], c.idLow[row]) & mask;
+            while (slots[i] >= 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = row;
+        }
+
+        private static int hash(long high, long low) {
+            long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private static int[] emptySlots(int capacity) {
+            int[] slots = new int[capacity];
+            Arrays.fill(slots, -1);
+            return slots;
+        }
+    }
+
+    // Immutable reference to the column arrays and row count as of one refresh
+    private static final class View {
+
+        final Columns columns;
+        final int size;
+        final String[] segments;
+        final String[] channels;
+        final LocalDateTime refreshedAt;
+
+        View(Columns source, int size, String[] segments, String[] channels, LocalDateTime refreshedAt) {
+            // Capture the current array references; a later grow() swaps them in source only
+            Columns pinned = new Columns(0);
+            pinned.idHigh = source.idHigh;
+            pinned.idLow = source.idLow;
+            pinned.toxicity = source.toxicity;
+            pinned.hate = source.hate;
+            pinned.sexual = source.sexual;
+            pinned.violence = source.violence;
+            pinned.types = source.types;
+            pinned.segments = source.segments;
+            pinned.channels = source.channels;
+            pinned.size = size;
+            this.columns = pinned;
+            this.size = size;
+            this.segments = segments;
+            this.channels = channels;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+
+    // Per-range counters, merged pairwise by the parallel reduction
+    private static final class Partial {
+
+        final long[] transitions = new long[SEVERITY.length * SEVERITY.length];
+        final long[] stricter = new long[ScoreVector.SIZE];
+        final long[] looser = new long[ScoreVector.SIZE];
+        final List<SimulationResponse.FlippedItem> samples;
+
+        Partial(int sampleSize) {
+            samples = new ArrayList<>(Math.min(sampleSize, 16));
+        }
+
+        Partial merge(Partial other, int sampleSize) {
+            Partial merged = new Partial(sampleSize);
+            for (int i = 0; i < transitions.length; i++) {
+                merged.transitions[i] = transitions[i] + other.transitions[i];
+            }
+            for (int i = 0; i < ScoreVector.SIZE; i++) {
+                merged.stricter[i] = stricter[i] + other.stricter[i];
+                merged.looser[i] = looser[i] + other.looser[i];
+            }
+            merged.samples.addAll(samples);
+            for (SimulationResponse.FlippedItem item : other.samples) {
+                if (merged.samples.size() >= sampleSize) {
+                    break;
+                }
+                merged.samples.add(item);
+            }
+            return merged;
+        }
+    }
+}
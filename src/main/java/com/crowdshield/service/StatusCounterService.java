@@ -0,0 +1,181 @@
+package com.crowdshield.service;
+
+import com.crowdshield.config.ReadReplicaTemplate;
+import com.crowdshield.model.Content;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Per-status content counts for the dashboard, read in O(1) instead of counting the content table.
+ * A trigger on content adjusts content_status_counts on every insert, delete and status change, so
+ * every write path (JPA, JDBC batches, relabeling, sweeps) is covered in the same transaction.
+ * Each database session writes its own counter row per status (shard = backend PID), so concurrent
+ * writers never contend for or deadlock on a counter row. A periodic reconciliation, run by one node at
+ * a time under an advisory lock, folds the rows of ended sessions into shard 0 and compares the counters
+ * with a recount from the same snapshot, correcting any drift with a small adjustment to shard 0. It
+ * takes no table locks, so counter updates from live writers go on throughout.
+ */
+@Slf4j
+@Service
+public class StatusCounterService {
+
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS content_status_counts ("
+                    + "status VARCHAR(20) NOT NULL, "
+                    + "shard INT NOT NULL, "
+                    + "count BIGINT NOT NULL DEFAULT 0, "
+                    + "PRIMARY KEY (status, shard))";
+
+    private static final String CREATE_FUNCTION_SQL =
+            "CREATE OR REPLACE FUNCTION content_status_count_trigger() RETURNS trigger AS $$\n"
+                    + "BEGIN\n"
+                    + "    IF TG_OP = 'UPDATE' AND OLD.status IS NOT DISTINCT FROM NEW.status THEN\n"
+                    + "        RETURN NULL;\n"
+                    + "    END IF;\n"
+                    + "    IF TG_OP IN ('UPDATE', 'DELETE') THEN\n"
+                    + "        INSERT INTO content_status_counts (status, shard, count) VALUES (OLD.status, pg_backend_pid(), -1)\n"
+                    + "        ON CONFLICT (status, shard) DO UPDATE SET count = content_status_counts.count - 1;\n"
+                    + "    END IF;\n"
+                    + "    IF TG_OP IN ('UPDATE', 'INSERT') THEN\n"
+                    + "        INSERT INTO content_status_counts (status, shard, count) VALUES (NEW.status, pg_backend_pid(), 1)\n"
+                    + "        ON CONFLICT (status, shard) DO UPDATE SET count = content_status_counts.count + 1;\n"
+                    + "    END IF;\n"
+                    + "    RETURN NULL;\n"
+                    + "END;\n"
+                    + "$$ LANGUAGE plpgsql";
+
+    private static final String TRIGGER_EXISTS_SQL =
+            "SELECT COUNT(*) FROM pg_trigger WHERE tgname = 'content_status_count' AND tgrelid = 'content'::regclass";
+
+    private static final String CREATE_TRIGGER_SQL =
+            "CREATE TRIGGER content_status_count AFTER INSERT OR DELETE OR UPDATE OF status ON content "
+                    + "FOR EACH ROW EXECUTE FUNCTION content_status_count_trigger()";
+
+    private static final String READ_SQL =
+            "SELECT status, SUM(count) FROM content_status_counts GROUP BY status";
+
+    private static final String TRY_RECONCILE_LOCK_SQL =
+            "SELECT pg_try_advisory_xact_lock(hashtext('content_status_counts.reconcile'))";
+
+    // Shard 0 is written only here, never by the trigger, so these statements cannot conflict with live writers
+    private static final String FOLD_SQL =
+            "WITH moved AS (DELETE FROM content_status_counts WHERE shard <> 0 "
+                    + "AND shard NOT IN (SELECT pid FROM pg_stat_activity) RETURNING status, count) "
+                    + "INSERT INTO content_status_counts (status, shard, count) "
+                    + "SELECT status, 0, SUM(count) FROM moved GROUP BY status "
+                    + "ON CONFLICT (status, shard) DO UPDATE SET count = content_status_counts.count + EXCLUDED.count";
+
+    private static final String ADJUST_SQL =
+            "INSERT INTO content_status_counts (status, shard, count) VALUES (?, 0, ?) "
+                    + "ON CONFLICT (status, shard) DO UPDATE SET count = content_status_counts.count + EXCLUDED.count";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final ReadReplicaTemplate replicaReads;
+
+    public StatusCounterService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                ReadReplicaTemplate replicaReads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Counters and recount must come from one snapshot to be comparable
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.replicaReads = replicaReads;
+    }
+
+    // Installs the counter table and trigger if missing, then seeds the counters from the content table
+    @EventListener(ApplicationReadyEvent.class)
+    public void install() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute(CREATE_TABLE_SQL);
+                jdbcTemplate.execute(CREATE_FUNCTION_SQL);
+                Integer triggers = jdbcTemplate.queryForObject(TRIGGER_EXISTS_SQL, Integer.class);
+                if (triggers == null || triggers == 0) {
+                    jdbcTemplate.execute(CREATE_TRIGGER_SQL);
+                    log.info("Installed content status counter trigger");
+                }
+            });
+            reconcile();
+        } catch (Exception e) {
+            log.error("Failed to install content status counters: {}", e.getMessage());
+        }
+    }
+
+    // Returns the number of content items per status from the counters (read replica when configured);
+    // O(statuses x active sessions)
+    public Map<Content.ContentStatus, Long> getCounts() {
+        Map<Content.ContentStatus, Long> counts = new EnumMap<>(Content.ContentStatus.class);
+        for (Content.ContentStatus status : Content.ContentStatus.values()) {
+            counts.put(status, 0L);
+        }
+        replicaReads.read(() -> {
+            jdbcTemplate.query(READ_SQL, rs -> {
+                counts.put(Content.ContentStatus.valueOf(rs.getString(1)), rs.getLong(2));
+            });
+            return null;
+        });
+        return counts;
+    }
+
+    // Compares the counters with a recount taken from the same snapshot and adds the difference to shard 0.
+    // A transition committed after the snapshot is in neither, and its own counter update still applies on
+    // top, so nothing is lost or counted twice. Skipped when another node is already reconciling.
+    @Scheduled(fixedDelayString = "${statistics.reconcile-interval-ms:600000}",
+            initialDelayString = "${statistics.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        try {
+            Map<String, Long> drift = snapshotTransaction.execute(status -> {
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_RECONCILE_LOCK_SQL, Boolean.class))) {
+                    return null;
+                }
+                jdbcTemplate.update(FOLD_SQL);
+
+                Map<String, Long> counted = new HashMap<>();
+                jdbcTemplate.query(READ_SQL, rs -> {
+                    counted.put(rs.getString(1), rs.getLong(2));
+                });
+                Map<String, Long> actual = new HashMap<>();
+                jdbcTemplate.query("SELECT status, COUNT(*) FROM content GROUP BY status", rs -> {
+                    actual.put(rs.getString(1), rs.getLong(2));
+                });
+
+                Set<String> statuses = new HashSet<>(counted.keySet());
+                statuses.addAll(actual.keySet());
+                Map<String, Long> differences = new HashMap<>();
+                for (String contentStatus : statuses) {
+                    long difference = actual.getOrDefault(contentStatus, 0L) - counted.getOrDefault(contentStatus, 0L);
+                    if (difference != 0) {
+                        jdbcTemplate.update(ADJUST_SQL, contentStatus, difference);
+                        differences.put(contentStatus, difference);
+                    }
+                }
+                return differences;
+            });
+
+            if (drift == null) {
+                log.debug("Skipped content status counter reconciliation - another node is running it");
+            } else if (!drift.isEmpty()) {
+                log.warn("Reconciled content status counters - corrections: {}", drift);
+            } else {
+                log.info("Reconciled content status counters - no drift");
+            }
+        } catch (Exception e) {
+            log.error("Failed to reconcile content status counters: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.crowdshield.service;
+
+import com.crowdshield.api.dto.ContentResponse;
+import com.crowdshield.model.Content;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Server-Sent Events streams of content status, a lighter alternative to STOMP for clients that only
+ * need to know when items finish. A stream covers one or more content IDs: it starts with each item's
+ * current status, sends a verdict event as each one is decided (from the cross-node verdict channel) and
+ * closes once all are decided. Status changes that leave an item undecided, such as a sweep putting it
+ * back to PENDING, are sent as status events. Streams run on async responses, so no request thread is held. Events
+ * go through a bounded per-stream buffer drained by a small sender pool; a client too slow to keep up
+ * is disconnected instead of buffering without limit, and reconnects to get the current state again.
+ * Idle streams get a heartbeat comment so proxies keep them open.
+ */
+@Slf4j
+@Service
+public class StatusStreamService {
+
+    private static final Set<Content.ContentStatus> FINAL_STATUSES = Set.of(
+            Content.ContentStatus.SAFE, Content.ContentStatus.FLAGGED,
+            Content.ContentStatus.REVIEW, Content.ContentStatus.ERROR);
+
+    private static final String SNAPSHOT_SQL =
+            "SELECT content_id, status, overall_label, toxicity_score, hate_score, sexual_score, violence_score "
+                    + "FROM moderation_view WHERE content_id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int bufferSize;
+    private final long timeoutMs;
+
+    // Open streams by the content IDs they still wait for
+    private final Map<UUID, Set<StatusStream>> streamsByContent = new ConcurrentHashMap<>();
+    private final Set<StatusStream> streams = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService sender;
+
+    public StatusStreamService(
+            JdbcTemplate jdbcTemplate,
+            VerdictWaitService verdictWaitService,
+            @Value("${sse.buffer-size:32}") int bufferSize,
+            @Value("${sse.timeout-ms:600000}") long timeoutMs,
+            @Value("${sse.sender-threads:4}") int senderThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        verdictWaitService.addListener(this::onVerdict);
+    }
+
+    // Opens a stream for the given content IDs. Unknown IDs get a not_found event; IDs already decided get
+    // their verdict straight away.
+    public SseEmitter open(List<UUID> contentIds) {
+        StatusStream stream = new StatusStream(new SseEmitter(timeoutMs), contentIds);
+        streams.add(stream);
+        stream.emitter.onCompletion(() -> close(stream));
+        stream.emitter.onTimeout(() -> close(stream));
+        stream.emitter.onError(error -> close(stream));
+
+        // Subscribe before reading the current state, so a verdict committed in between is not missed;
+        // a verdict seen both ways is sent once
+        for (UUID contentId : stream.remaining) {
+            streamsByContent.computeIfAbsent(contentId, id -> ConcurrentHashMap.newKeySet()).add(stream);
+        }
+
+        Map<UUID, ContentResponse> snapshot = snapshot(contentIds);
+        for (UUID contentId : contentIds) {
+            ContentResponse current = snapshot.get(contentId);
+            if (current == null) {
+                if (stream.remaining.remove(contentId)) {
+                    unsubscribe(stream, contentId);
+                    stream.offer(SseEmitter.event().name("not_found").data(Map.of("contentId", contentId)));
+                }
+            } else if (isFinal(current)) {
+                deliver(stream, current);
+            } else {
+                stream.offer(statusEvent(current));
+            }
+        }
+        stream.finishIfDone();
+
+        log.debug("Opened status stream - content_ids: {}, open_streams: {}", contentIds.size(), streams.size());
+        return stream.emitter;
+    }
+
+    // Sends a heartbeat comment on every open stream
+    @Scheduled(fixedDelayString = "${sse.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (StatusStream stream : streams) {
+            stream.offer(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    public int getOpenStreams() {
+        return streams.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streams.forEach(stream -> stream.emitter.complete());
+        sender.shutdownNow();
+    }
+
+    // Runs on the Redis listener thread, so it only hands events to the streams' buffers
+    private void onVerdict(ContentResponse verdict) {
+        Set<StatusStream> subscribed = streamsByContent.get(verdict.getContentId());
+        if (subscribed == null) {
+            return;
+        }
+        for (StatusStream stream : subscribed) {
+            if (isFinal(verdict)) {
+                deliver(stream, verdict);
+                stream.finishIfDone();
+            } else {
+                stream.offer(statusEvent(verdict));
+            }
+        }
+    }
+
+    private void deliver(StatusStream stream, ContentResponse verdict) {
+        if (stream.remaining.remove(verdict.getContentId())) {
+            unsubscribe(stream, verdict.getContentId());
+            stream.offer(SseEmitter.event().name("verdict").id(verdict.getContentId().toString()).data(verdict));
+        }
+    }
+
+    // Current status, label and scores of each item from moderation_view. This always reads the primary: a
+    // verdict published before the stream subscribed must already be visible here, and a lagging replica
+    // could still show the item as pending, leaving the stream waiting for a message that has come and gone.
+    private Map<UUID, ContentResponse> snapshot(List<UUID> contentIds) {
+        if (contentIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        RowMapper<ContentResponse> mapper = (rs, rowNum) -> {
+            String status = rs.getString("status");
+            // ERROR items never have a verdict, even if an earlier attempt left a result behind
+            String label = Content.ContentStatus.ERROR.name().equals(status) ? null : rs.getString("overall_label");
+            return VerdictWaitService.verdict(rs.getObject("content_id", UUID.class), status, label,
+                    rs.getObject("toxicity_score", Float.class), rs.getObject("hate_score", Float.class),
+                    rs.getObject("sexual_score", Float.class), rs.getObject("violence_score", Float.class));
+        };
+        String placeholders = String.join(",", Collections.nCopies(contentIds.size(), "?"));
+        Map<UUID, ContentResponse> snapshot = new HashMap<>();
+        for (ContentResponse current : jdbcTemplate.query(
+                String.format(SNAPSHOT_SQL, placeholders), mapper, contentIds.toArray())) {
+            snapshot.put(current.getContentId(), current);
+        }
+        return snapshot;
+    }
+
+    private static boolean isFinal(ContentResponse response) {
+        return FINAL_STATUSES.contains(Content.ContentStatus.valueOf(response.getStatus()));
+    }
+
+    private static SseEmitter.SseEventBuilder statusEvent(ContentResponse response) {
+        return SseEmitter.event().name("status").data(Map.of(
+                "contentId", response.getContentId(),
+                "status", response.getStatus()));
+    }
+
+    private void close(StatusStream stream) {
+        stream.closed = true;
+        streams.remove(stream);
+        for (UUID contentId : stream.remaining) {
+            unsubscribe(stream, contentId);
+        }
+    }
+
+    private void unsubscribe(StatusStream stream, UUID contentId) {
+        streamsByContent.computeIfPresent(contentId, (id, subscribed) -> {
+            subscribed.remove(stream);
+            return subscribed.isEmpty() ? null : subscribed;
+        });
+    }
+
+    // One client connection: the IDs it still waits for and its bounded event buffer
+    private final class StatusStream {
+
+        final SseEmitter emitter;
+        final Set<UUID> remaining = ConcurrentHashMap.newKeySet();
+        final BlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean finished;
+        volatile boolean closed;
+
+        StatusStream(SseEmitter emitter, List<UUID> contentIds) {
+            this.emitter = emitter;
+            this.remaining.addAll(contentIds);
+            // Room for the opening snapshot (one event per ID) on top of the configured backlog
+            this.buffer = new ArrayBlockingQueue<>(bufferSize + contentIds.size());
+        }
+
+        // Queues an event without blocking; a full buffer means the client is not keeping up
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                log.warn("Closing status stream that fell {} events behind", buffer.size());
+                closed = true;
+                emitter.complete();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        // Closes the stream once every item is decided and the last events are sent
+        void finishIfDone() {
+            if (remaining.isEmpty()) {
+                finished = true;
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = buffer.poll()) != null) {
+                    emitter.send(event);
+                }
+                if (finished && !closed && buffer.isEmpty()) {
+                    closed = true;
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; the emitter callbacks clean up
+                closed = true;
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+            }
+            // An event offered after the loop ended but before the flag was cleared still needs sending
+            if (!closed && (!buffer.isEmpty() || finished) && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+    }
+}
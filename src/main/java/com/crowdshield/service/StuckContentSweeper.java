@@ -0,0 +1,99 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.Content;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * Resolves content left in PROCESSING by a worker that died or lost its verdict. Stuck rows are
+ * found through the (status, updated_at) index and fixed in bounded chunks with one set-based
+ * UPDATE each: rows that already have a moderation result take the status of their latest label,
+ * rows without one are marked ERROR. Rows locked by an in-flight write are skipped and picked up
+ * by a later sweep. Each chunk's new statuses are published on the verdict channel. Runs on a schedule
+ * and on demand from the admin API.
+ */
+@Slf4j
+@Service
+public class StuckContentSweeper {
+
+    private static final String SWEEP_CHUNK_SQL =
+            "WITH stuck AS ("
+                    + "    SELECT id FROM content"
+                    + "    WHERE status = 'PROCESSING' AND updated_at < ?"
+                    + "    ORDER BY updated_at LIMIT ? FOR UPDATE SKIP LOCKED"
+                    + "), resolved AS ("
+                    + "    SELECT s.id, COALESCE(r.overall_label, 'ERROR') AS status"
+                    + "    FROM stuck s"
+                    + "    LEFT JOIN LATERAL ("
+                    + "        SELECT overall_label FROM moderation_results"
+                    + "        WHERE content_id = s.id ORDER BY created_at DESC LIMIT 1"
+                    + "    ) r ON TRUE"
+                    + ") "
+                    + "UPDATE content c SET status = resolved.status, updated_at = NOW() "
+                    + "FROM resolved WHERE c.id = resolved.id "
+                    + "RETURNING c.id, c.status";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VerdictWaitService verdictWaitService;
+    private final long stuckAfterMinutes;
+    private final int chunkSize;
+
+    public StuckContentSweeper(
+            JdbcTemplate jdbcTemplate,
+            VerdictWaitService verdictWaitService,
+            @Value("${sweeper.stuck-after-minutes:5}") long stuckAfterMinutes,
+            @Value("${sweeper.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.verdictWaitService = verdictWaitService;
+        this.stuckAfterMinutes = stuckAfterMinutes;
+        this.chunkSize = chunkSize;
+    }
+
+    // Periodic sweep; failures are logged and retried on the next run
+    @Scheduled(fixedDelayString = "${sweeper.interval-ms:60000}",
+            initialDelayString = "${sweeper.interval-ms:60000}")
+    public void sweepScheduled() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            log.error("Stuck content sweep failed: {}", e.getMessage());
+        }
+    }
+
+    // Resolves every PROCESSING item not updated for stuck-after-minutes, one chunk per statement.
+    // Returns the number of items fixed.
+    public int sweep() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusMinutes(stuckAfterMinutes));
+        int fixed = 0;
+        int errored = 0;
+
+        while (true) {
+            Map<UUID, Content.ContentStatus> statuses = new LinkedHashMap<>();
+            jdbcTemplate.query(SWEEP_CHUNK_SQL, rs -> {
+                statuses.put(rs.getObject(1, UUID.class), Content.ContentStatus.valueOf(rs.getString(2)));
+            }, cutoff, chunkSize);
+            verdictWaitService.publishStatuses(statuses);
+
+            fixed += statuses.size();
+            errored += (int) statuses.values().stream().filter(Content.ContentStatus.ERROR::equals).count();
+            if (statuses.size() < chunkSize) {
+                break;
+            }
+        }
+
+        if (fixed > 0) {
+            log.info("Fixed stuck content - total: {}, from stored result: {}, marked ERROR: {}",
+                    fixed, fixed - errored, errored);
+        }
+        return fixed;
+    }
+}
@@ -0,0 +1,204 @@
+package com.crowdshield.service;
+
+import com.crowdshield.model.ModerationView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Content-addressed storage for text bodies. Each distinct text is stored once in text_blobs under
+ * its SHA-256, so a spam wave of identical posts writes one body and many small content rows, and
+ * jobs carry the hash instead of the text. Bodies at or above storage.text.compress-threshold bytes
+ * are deflated. Recently loaded bodies are cached by hash, which makes repeated texts cheap to load.
+ * The search terms of each body are computed once on store, for admin search (see ContentSearchService).
+ * A store first looks the hash up and locks an existing blob (FOR KEY SHARE) until the caller's transaction
+ * commits, so retention cannot remove it while the new content row referencing it is in flight. Only texts
+ * not stored yet are compressed, sent and indexed, so duplicates cost one small keyed read.
+ */
+@Slf4j
+@Service
+public class TextBlobService {
+
+    // Only the leading SEARCH_TEXT_LIMIT characters are indexed for search, well under the tsvector size limit
+    static final int SEARCH_TEXT_LIMIT = 100_000;
+
+    static final String SEARCH_VECTOR_SQL = "to_tsvector('simple', left(?, " + SEARCH_TEXT_LIMIT + "))";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO text_blobs (hash, length, head, body, compressed_body, search_vector, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, " + SEARCH_VECTOR_SQL + ", NOW()) ON CONFLICT (hash) DO NOTHING";
+
+    private static final String LOCK_SQL = "SELECT hash FROM text_blobs WHERE hash = ? FOR KEY SHARE";
+
+    private static final String LOCK_ALL_SQL = "SELECT hash FROM text_blobs WHERE hash IN (%s) ORDER BY hash FOR KEY SHARE";
+
+    private static final String SELECT_SQL =
+            "SELECT body, compressed_body FROM text_blobs WHERE hash = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int compressThreshold;
+    private final Map<String, String> cache;
+
+    public TextBlobService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${storage.text.compress-threshold:2048}") int compressThreshold,
+            @Value("${storage.text.cache-size:1000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.compressThreshold = compressThreshold;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    // Returns the hex SHA-256 of a text, which identifies its blob
+    public static String hash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Stores a text unless an identical one is already stored, and returns its hash.
+    // Runs in the caller's transaction so the blob commits together with the content row that references it.
+    public String store(String text) {
+        String hash = hash(text);
+        Object[] row = null;
+        while (jdbcTemplate.queryForList(LOCK_SQL, String.class, hash).isEmpty()) {
+            if (row == null) {
+                row = blobRow(hash, text);
+            }
+            if (jdbcTemplate.update(INSERT_SQL, row) > 0) {
+                return hash;
+            }
+            // Stored by a concurrent transaction in between; lock that row instead
+        }
+        log.debug("Text already stored - hash: {}", hash);
+        return hash;
+    }
+
+    // Stores several texts with one JDBC batch and returns their hashes in the same order
+    public List<String> storeAll(List<String> texts) {
+        // Identical texts in one batch are written once. Rows go in hash order, so concurrent batches sharing
+        // texts take the row locks in the same order instead of deadlocking on each other.
+        Map<String, String> missing = new TreeMap<>();
+        List<String> hashes = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            String hash = hash(text);
+            missing.putIfAbsent(hash, text);
+            hashes.add(hash);
+        }
+        Map<String, Object[]> rows = new HashMap<>();
+        while (!missing.isEmpty()) {
+            // Lock the blobs that are stored already, including any this loop just inserted
+            String placeholders = String.join(", ", Collections.nCopies(missing.size(), "?"));
+            jdbcTemplate.queryForList(String.format(LOCK_ALL_SQL, placeholders), String.class, missing.keySet().toArray())
+                    .forEach(missing::remove);
+            if (missing.isEmpty()) {
+                break;
+            }
+            // Texts stored concurrently in between are skipped by the insert and locked on the next pass
+            List<Object[]> batch = new ArrayList<>(missing.size());
+            missing.forEach((hash, text) -> batch.add(rows.computeIfAbsent(hash, h -> blobRow(h, text))));
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        }
+        return hashes;
+    }
+
+    // Insert arguments for a text: hash, length, head, body or compressed body, and the text to index
+    private Object[] blobRow(String hash, String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = utf8.length >= compressThreshold ? deflate(utf8) : null;
+        // Keep the compressed form only when it actually saves space
+        boolean useCompressed = compressed != null && compressed.length < utf8.length;
+
+        String head = text.length() > ModerationView.PREVIEW_LENGTH + 1
+                ? text.substring(0, ModerationView.PREVIEW_LENGTH + 1)
+                : text;
+        return new Object[]{hash, text.length(), head,
+                useCompressed ? null : text, useCompressed ? compressed : null, text};
+    }
+
+    // Loads the text stored under a hash
+    public Optional<String> load(String hash) {
+        String cached = cache.get(hash);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        List<String> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> bodyText(rs.getString(1), rs.getBytes(2)), hash);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        cache.put(hash, rows.get(0));
+        return Optional.of(rows.get(0));
+    }
+
+    // Returns the text of a blob row from its body and compressed_body columns, for queries that read blobs directly
+    static String bodyText(String body, byte[] compressedBody) {
+        if (body != null || compressedBody == null) {
+            return body;
+        }
+        return new String(inflate(compressedBody), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed text body");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed text body", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.crowdshield.service;
+
+import com.crowdshield.api.dto.ContentResponse;
+import com.crowdshield.api.dto.ModerationScores;
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult;
+import com.crowdshield.queue.RedisKeys;
+import com.crowdshield.util.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/*
+ * Delivers committed verdicts to submissions that asked to wait for them. Every verdict is published on a
+ * Redis channel with its status, label and scores, so whichever node holds the waiting request completes
+ * it straight from the message, with no database read and no thread blocked while waiting. Delivery is
+ * best effort: a waiter that misses its message simply times out into the normal PENDING response.
+ * Jobs that end in the DLQ and status changes made outside the worker (e.g. admin overrides) are
+ * published too, as a status without scores. Only a final status completes a waiter; open statuses
+ * (PENDING, PROCESSING), e.g. an item put back in the queue, leave it waiting. Other components (the SSE
+ * status streams, the status cache) receive every published status through addListener, open ones
+ * included. A publish made inside a transaction is sent once the transaction commits.
+ */
+@Slf4j
+@Service
+public class VerdictWaitService {
+
+    private static final Set<String> OPEN_STATUSES = Set.of(
+            Content.ContentStatus.PENDING.name(), Content.ContentStatus.PROCESSING.name());
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    // Waiting submissions on this node by content ID; IDs are fresh per submission, so one waiter each
+    // (an idempotent replay waiting at the same time as its original shares the original's)
+    private final Map<UUID, CompletableFuture<ContentResponse>> waiters = new ConcurrentHashMap<>();
+    private final List<Consumer<ContentResponse>> listeners = new CopyOnWriteArrayList<>();
+
+    public VerdictWaitService(
+            RedisTemplate<String, String> redisTemplate,
+            RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> deliver(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(RedisKeys.VERDICTS_CHANNEL));
+    }
+
+    // Registers interest in a content item's verdict; must happen before the item is queued so the verdict
+    // cannot be published first. The future completes with the status, label and scores.
+    public CompletableFuture<ContentResponse> await(UUID contentId) {
+        return waiters.computeIfAbsent(contentId, id -> new CompletableFuture<>());
+    }
+
+    // Drops the waiter once its request has been answered, whether by a verdict, a timeout or an error
+    public void cancel(UUID contentId) {
+        waiters.remove(contentId);
+    }
+
+    // Whether a status is still open (PENDING or PROCESSING), i.e. no verdict has been reached yet
+    public static boolean isOpen(String status) {
+        return OPEN_STATUSES.contains(status);
+    }
+
+    // Receives every verdict published by any node, on the Redis listener thread; must not block
+    public void addListener(Consumer<ContentResponse> listener) {
+        listeners.add(listener);
+    }
+
+    // Publishes a verdict to all nodes; call only after it is committed
+    public void publish(UUID contentId, ModerationResult.ModerationLabel label, ModerationScores scores) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("contentId", contentId.toString());
+        message.put("status", Content.ContentStatus.fromLabel(label).name());
+        message.put("label", label.name());
+        message.put("toxicity", scores.getToxicityScore());
+        message.put("hate", scores.getHateScore());
+        message.put("sexual", scores.getSexualScore());
+        message.put("violence", scores.getViolenceScore());
+        send(contentId, message);
+    }
+
+    // Publishes that a job gave up for good and its content is now ERROR
+    public void publishError(UUID contentId) {
+        publishStatuses(Map.of(contentId, Content.ContentStatus.ERROR));
+    }
+
+    // Publishes status changes made outside the worker in one message; label and scores are not included
+    public void publishStatuses(Map<UUID, Content.ContentStatus> statuses) {
+        if (statuses.isEmpty()) {
+            return;
+        }
+        Map<String, String> byId = new LinkedHashMap<>();
+        statuses.forEach((contentId, status) -> byId.put(contentId.toString(), status.name()));
+        send(statuses.keySet().iterator().next(), Map.<String, Object>of("statuses", byId));
+    }
+
+    // Builds the response shape used for verdicts: status and, once scored, label and scores
+    public static ContentResponse verdict(UUID contentId, String status, String label,
+                                          Float toxicity, Float hate, Float sexual, Float violence) {
+        return ContentResponse.builder()
+                .contentId(contentId)
+                .status(status)
+                .label(label)
+                .scores(label == null ? null : ContentResponse.Scores.builder()
+                        .toxicity(toxicity)
+                        .hate(hate)
+                        .sexual(sexual)
+                        .violence(violence)
+                        .build())
+                .build();
+    }
+
+    private void send(UUID contentId, Map<String, Object> message) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Listeners may read the change back, so it must be visible before they hear of it
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendNow(contentId, message);
+                }
+            });
+            return;
+        }
+        sendNow(contentId, message);
+    }
+
+    private void sendNow(UUID contentId, Map<String, Object> message) {
+        try {
+            redisTemplate.convertAndSend(RedisKeys.VERDICTS_CHANNEL, JsonUtils.toJson(message));
+        } catch (Exception e) {
+            log.error("Failed to publish verdict for contentId: {}", contentId, e);
+        }
+    }
+
+    // Completes the local waiters for a published message, if this node has any, and notifies listeners
+    private void deliver(String json) {
+        if (waiters.isEmpty() && listeners.isEmpty()) {
+            return;
+        }
+        Map<String, Object> message = JsonUtils.toMap(json);
+
+        if (message.get("statuses") instanceof Map<?, ?> statuses) {
+            statuses.forEach((id, status) -> dispatch(
+                    verdict(UUID.fromString(id.toString()), status.toString(), null, null, null, null, null)));
+            return;
+        }
+
+        Object id = message.get("contentId");
+        if (id == null) {
+            return;
+        }
+        dispatch(verdict(UUID.fromString(id.toString()), (String) message.get("status"), (String) message.get("label"),
+                score(message.get("toxicity")), score(message.get("hate")),
+                score(message.get("sexual")), score(message.get("violence"))));
+    }
+
+    private void dispatch(ContentResponse verdict) {
+        UUID contentId = verdict.getContentId();
+        // Waiters only want the final outcome; listeners get every change, including moves back to PENDING
+        if (!OPEN_STATUSES.contains(verdict.getStatus())) {
+            CompletableFuture<ContentResponse> waiter = waiters.remove(contentId);
+            if (waiter != null) {
+                waiter.complete(verdict);
+            }
+        }
+        for (Consumer<ContentResponse> listener : listeners) {
+            try {
+                listener.accept(verdict);
+            } catch (Exception e) {
+                log.error("Verdict listener failed for contentId: {}", contentId, e);
+            }
+        }
+    }
+
+    private static Float score(Object value) {
+        return value instanceof Number number ? number.floatValue() : null;
+    }
+}
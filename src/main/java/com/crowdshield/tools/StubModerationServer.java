@@ -0,0 +1,380 @@
+package com.crowdshield.tools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Stand-in for the OpenAI moderation provider, used to load-test the worker's real HTTP path
+ * (timeouts, 5xx retries, 429/401 fallback) without calling the paid API.
+ *
+ * Depends only on the JDK so it can be started without the Spring context:
+ *
+ *   java src/main/java/com/crowdshield/tools/StubModerationServer.java --port=9090 \
+ *        --latency=lognormal:40:400 --rate-429=0.02 --rate-5xx=0.01 --rate-reset=0.005
+ *
+ * and the application pointed at it with ML_API_URL=http://localhost:9090/v1 ML_API_KEY=stub.
+ *
+ * Options (all optional):
+ *   --port=9090             listen port
+ *   --latency=SPEC          none | fixed:MS | uniform:MIN:MAX | lognormal:P50:P99
+ *   --rate-429=0.0          fraction of requests answered with 429 rate_limit_exceeded
+ *   --rate-5xx=0.0          fraction answered with 500/502/503
+ *   --rate-reset=0.0        fraction whose connection is closed without a response
+ *   --rate-stall=0.0        fraction held for --stall-ms (past the client timeout)
+ *   --stall-ms=30000        how long a stalled request is held
+ *   --flag-rate=0.1         fraction of inputs that get a high score in one category
+ *   --retry-after=1         Retry-After seconds sent with 429 responses
+ *
+ * GET /stats returns request counters and latency percentiles as JSON.
+ */
+public class StubModerationServer {
+
+    private static final String[] CATEGORIES = {
+            "harassment", "harassment/threatening", "hate", "hate/threatening",
+            "illicit", "illicit/violent", "self-harm", "self-harm/intent",
+            "self-harm/instructions", "sexual", "sexual/minors", "violence", "violence/graphic"
+    };
+
+    private static final int[] SERVER_ERRORS = {500, 502, 503};
+
+    // Latency histogram buckets in milliseconds (upper bounds), last bucket is open-ended
+    private static final long[] BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, Long.MAX_VALUE};
+
+    private final Options options;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(BUCKETS.length);
+    private final long startedAt = System.currentTimeMillis();
+
+    public StubModerationServer(Options options) {
+        this.options = options;
+        this.scheduler = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "stub-moderation-responder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        new StubModerationServer(options).start();
+    }
+
+    // Binds the HTTP server and registers the moderation and stats handlers
+    public HttpServer start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(options.port), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2)));
+        server.start();
+
+        System.out.printf(Locale.ROOT,
+                "Stub moderation server listening on :%d - latency=%s 429=%.3f 5xx=%.3f reset=%.3f stall=%.3f flag=%.3f%n",
+                options.port, options.latency, options.rate429, options.rate5xx,
+                options.rateReset, options.rateStall, options.flagRate);
+        return server;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        if ("GET".equals(method) && path.endsWith("/stats")) {
+            send(exchange, 200, statsJson(), null);
+            return;
+        }
+        if (!"POST".equals(method) || !path.endsWith("/moderations")) {
+            send(exchange, 404, errorJson("Unknown endpoint " + method + " " + path, "invalid_request_error", null), null);
+            return;
+        }
+
+        long received = System.nanoTime();
+        requests.incrementAndGet();
+        byte[] body = readAll(exchange.getRequestBody());
+
+        // The fault to inject is decided up front so every request costs one random draw
+        double roll = ThreadLocalRandom.current().nextDouble();
+        Fault fault = options.pickFault(roll);
+        long delayMs = fault == Fault.STALL ? options.stallMs : options.latency.sample();
+
+        scheduler.schedule(() -> respond(exchange, body, fault, received), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Completes a parked exchange after its simulated latency has elapsed
+    private void respond(HttpExchange exchange, byte[] body, Fault fault, long received) {
+        try {
+            switch (fault) {
+                case RESET -> {
+                    resets.incrementAndGet();
+                    // Closing before headers are sent drops the connection, which the client sees as a reset
+                    exchange.close();
+                }
+                case RATE_LIMIT -> {
+                    rateLimited.incrementAndGet();
+                    send(exchange, 429,
+                            errorJson("Rate limit reached for requests", "requests", "rate_limit_exceeded"),
+                            Map.of("Retry-After", String.valueOf(options.retryAfterSeconds)));
+                }
+                case SERVER_ERROR -> {
+                    serverErrors.incrementAndGet();
+                    int status = SERVER_ERRORS[ThreadLocalRandom.current().nextInt(SERVER_ERRORS.length)];
+                    send(exchange, status, errorJson("The server had an error while processing your request", "server_error", null), null);
+                }
+                case STALL, NONE -> {
+                    if (fault == Fault.STALL) {
+                        stalls.incrementAndGet();
+                    }
+                    ok.incrementAndGet();
+                    send(exchange, 200, moderationJson(body), null);
+                }
+            }
+        } catch (IOException e) {
+            // Client went away (usually its timeout fired first) - nothing left to answer
+            exchange.close();
+        } finally {
+            recordLatency((System.nanoTime() - received) / 1_000_000);
+        }
+    }
+
+    // Builds an OpenAI-shaped moderation response with scores derived deterministically from the input
+    private String moderationJson(byte[] body) {
+        SplittableRandom random = new SplittableRandom(Arrays.hashCode(body));
+        double[] scores = new double[CATEGORIES.length];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextDouble() * 0.05;
+        }
+
+        boolean isFlagged = random.nextDouble() < options.flagRate;
+        if (isFlagged) {
+            flagged.incrementAndGet();
+            scores[random.nextInt(CATEGORIES.length)] = 0.75 + random.nextDouble() * 0.24;
+        }
+
+        StringBuilder categories = new StringBuilder();
+        StringBuilder categoryScores = new StringBuilder();
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            String separator = i == 0 ? "" : ",";
+            categories.append(separator).append('"').append(CATEGORIES[i]).append("\":").append(scores[i] > 0.5);
+            categoryScores.append(separator).append('"').append(CATEGORIES[i]).append("\":")
+                    .append(String.format(Locale.ROOT, "%.6f", scores[i]));
+        }
+
+        return "{\"id\":\"modr-stub-" + Long.toHexString(random.nextLong()) + "\","
+                + "\"model\":\"omni-moderation-latest\","
+                + "\"results\":[{\"flagged\":" + isFlagged + ","
+                + "\"categories\":{" + categories + "},"
+                + "\"category_scores\":{" + categoryScores + "}}]}";
+    }
+
+    private String errorJson(String message, String type, String code) {
+        return "{\"error\":{\"message\":\"" + message.replace("\"", "'") + "\",\"type\":\"" + type + "\","
+                + "\"param\":null,\"code\":" + (code != null ? "\"" + code + "\"" : "null") + "}}";
+    }
+
+    // Reports counters and approximate latency percentiles from the histogram
+    private String statsJson() {
+        long[] counts = new long[BUCKETS.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = latencyHistogram.get(i);
+            total += counts[i];
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("uptime_seconds", (System.currentTimeMillis() - startedAt) / 1000);
+        stats.put("requests", requests.get());
+        stats.put("ok", ok.get());
+        stats.put("rate_limited", rateLimited.get());
+        stats.put("server_errors", serverErrors.get());
+        stats.put("resets", resets.get());
+        stats.put("stalls", stalls.get());
+        stats.put("flagged", flagged.get());
+        stats.put("latency_p50_ms_le", percentile(counts, total, 0.50));
+        stats.put("latency_p90_ms_le", percentile(counts, total, 0.90));
+        stats.put("latency_p99_ms_le", percentile(counts, total, 0.99));
+
+        StringBuilder json = new StringBuilder("{");
+        stats.forEach((key, value) -> {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(key).append("\":").append(value);
+        });
+        return json.append('}').toString();
+    }
+
+    private long percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return BUCKETS[i] == Long.MAX_VALUE ? -1 : BUCKETS[i];
+            }
+        }
+        return -1;
+    }
+
+    private void recordLatency(long millis) {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (millis <= BUCKETS[i]) {
+                latencyHistogram.incrementAndGet(i);
+                return;
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json, Map<String, String> headers) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (headers != null) {
+            headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    enum Fault {
+        NONE, RATE_LIMIT, SERVER_ERROR, RESET, STALL
+    }
+
+    // Parsed command-line options, see the class comment for the supported flags
+    static class Options {
+        int port = 9090;
+        LatencyModel latency = LatencyModel.parse("lognormal:40:400");
+        double rate429;
+        double rate5xx;
+        double rateReset;
+        double rateStall;
+        long stallMs = 30000;
+        double flagRate = 0.1;
+        int retryAfterSeconds = 1;
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+                }
+                int eq = arg.indexOf('=');
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+
+            Options options = new Options();
+            options.port = Integer.parseInt(values.getOrDefault("port", String.valueOf(options.port)));
+            if (values.containsKey("latency")) {
+                options.latency = LatencyModel.parse(values.get("latency"));
+            }
+            options.rate429 = rate(values, "rate-429", options.rate429);
+            options.rate5xx = rate(values, "rate-5xx", options.rate5xx);
+            options.rateReset = rate(values, "rate-reset", options.rateReset);
+            options.rateStall = rate(values, "rate-stall", options.rateStall);
+            options.stallMs = Long.parseLong(values.getOrDefault("stall-ms", String.valueOf(options.stallMs)));
+            options.flagRate = rate(values, "flag-rate", options.flagRate);
+            options.retryAfterSeconds = Integer.parseInt(values.getOrDefault("retry-after", String.valueOf(options.retryAfterSeconds)));
+
+            if (options.rate429 + options.rate5xx + options.rateReset + options.rateStall > 1.0) {
+                throw new IllegalArgumentException("Fault rates must add up to at most 1.0");
+            }
+            return options;
+        }
+
+        private static double rate(Map<String, String> values, String key, double defaultValue) {
+            double value = Double.parseDouble(values.getOrDefault(key, String.valueOf(defaultValue)));
+            if (value < 0.0 || value > 1.0) {
+                throw new IllegalArgumentException(key + " must be between 0.0 and 1.0");
+            }
+            return value;
+        }
+
+        // Maps a uniform draw onto the configured fault bands
+        Fault pickFault(double roll) {
+            if (roll < rate429) return Fault.RATE_LIMIT;
+            roll -= rate429;
+            if (roll < rate5xx) return Fault.SERVER_ERROR;
+            roll -= rate5xx;
+            if (roll < rateReset) return Fault.RESET;
+            roll -= rateReset;
+            if (roll < rateStall) return Fault.STALL;
+            return Fault.NONE;
+        }
+    }
+
+    // Latency distribution used to delay successful and failed responses alike
+    record LatencyModel(String spec, String kind, double a, double b) {
+
+        // Z-score of the 99th percentile of the standard normal distribution
+        private static final double Z_99 = 2.3263;
+
+        static LatencyModel parse(String spec) {
+            String[] parts = spec.split(":");
+            return switch (parts[0]) {
+                case "none" -> new LatencyModel(spec, "none", 0, 0);
+                case "fixed" -> new LatencyModel(spec, "fixed", Double.parseDouble(parts[1]), 0);
+                case "uniform" -> new LatencyModel(spec, "uniform", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                case "lognormal" -> {
+                    double p50 = Double.parseDouble(parts[1]);
+                    double p99 = Double.parseDouble(parts[2]);
+                    if (p50 <= 0 || p99 < p50) {
+                        throw new IllegalArgumentException("lognormal latency needs 0 < p50 <= p99: " + spec);
+                    }
+                    yield new LatencyModel(spec, "lognormal", Math.log(p50), Math.log(p99 / p50) / Z_99);
+                }
+                default -> throw new IllegalArgumentException("Unknown latency model: " + spec);
+            };
+        }
+
+        long sample() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double millis = switch (kind) {
+                case "fixed" -> a;
+                case "uniform" -> a + random.nextDouble() * (b - a);
+                case "lognormal" -> Math.exp(a + b * random.nextGaussian());
+                default -> 0;
+            };
+            return Math.max(0, Math.round(millis));
+        }
+
+        @Override
+        public String toString() {
+            return spec;
+        }
+    }
+}
@@ -4,9 +4,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Component
@@ -29,7 +33,8 @@ public class RateLimiter {
         long currentTime = System.currentTimeMillis();
         RequestCounter counter = counters.computeIfAbsent(userId, k -> new RequestCounter());
         
-        synchronized (counter) {
+        counter.lock.lock();
+        try {
             if (currentTime - counter.windowStart > 60000) {
                 counter.count.set(0);
                 counter.windowStart = currentTime;
@@ -42,12 +47,53 @@ public class RateLimiter {
             
             counter.count.incrementAndGet();
             return true;
+        } finally {
+            counter.lock.unlock();
+        }
+    }
+    
+    // Checks if a request made on behalf of several users (a batch) is allowed: each user is charged the number
+    // of requests given for them (one per item), and the batch is charged to all of them or to none. Counters are
+    // locked in sorted order, so concurrent batches for overlapping users cannot deadlock, and every user is
+    // checked before anyone is charged.
+    public boolean allowRequests(Map<String, Integer> requestsByUser) {
+        if (!enabled) {
+            return true;
+        }
+
+        Map<String, Integer> users = new TreeMap<>(requestsByUser);
+        List<RequestCounter> locked = new ArrayList<>(users.size());
+        try {
+            long currentTime = System.currentTimeMillis();
+            for (Map.Entry<String, Integer> user : users.entrySet()) {
+                RequestCounter counter = counters.computeIfAbsent(user.getKey(), k -> new RequestCounter());
+                counter.lock.lock();
+                locked.add(counter);
+
+                if (currentTime - counter.windowStart > 60000) {
+                    counter.count.set(0);
+                    counter.windowStart = currentTime;
+                }
+                if (counter.count.get() + user.getValue() > requestsPerMinute) {
+                    log.warn("Rate limit exceeded for user: {}", user.getKey());
+                    return false;
+                }
+            }
+
+            int i = 0;
+            for (int requests : users.values()) {
+                locked.get(i++).count.addAndGet(requests);
+            }
+            return true;
+        } finally {
+            locked.forEach(counter -> counter.lock.unlock());
         }
     }
     
     private static class RequestCounter {
         AtomicInteger count = new AtomicInteger(0);
         long windowStart = System.currentTimeMillis();
+        final ReentrantLock lock = new ReentrantLock();
     }
 }
 
@@ -0,0 +1,226 @@
+package com.crowdshield.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compact binary form of a provider moderation response.
+// The known categories of the first result are stored as a fixed vector (presence bitmasks, flag bits and
+// float32 scores); everything else is kept as JSON deflated against a preset dictionary of the provider's
+// usual keys and values. Decoding is lossy: scores come back at float precision and the known categories
+// come first in their maps, so a decoded response is labelled with its encoding() rather than passed off
+// as the provider's exact bytes.
+public class RawResponseCodec {
+
+    private static final byte VERSION = 1;
+
+    // Order defines the bit and vector position of each category; append only
+    private static final String[] CATEGORIES = {
+            "harassment", "harassment/threatening", "hate", "hate/threatening",
+            "illicit", "illicit/violent", "self-harm", "self-harm/instructions", "self-harm/intent",
+            "sexual", "sexual/minors", "violence", "violence/graphic"
+    };
+
+    private static final byte[] DICTIONARY = buildDictionary();
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private RawResponseCodec() {
+    }
+
+    // Names the format of an encoded response, e.g. "compact-v1"
+    public static String encoding(byte[] encoded) {
+        if (encoded.length == 0) {
+            throw new IllegalArgumentException("Empty raw response encoding");
+        }
+        return "compact-v" + encoded[0];
+    }
+
+    // Encodes a raw provider response
+    public static byte[] encode(Map<String, Object> response) {
+        Map<String, Object> remainder = deepCopy(response);
+        Map<String, Object> result = firstResult(remainder);
+        Map<String, Object> scores = result != null ? childMap(result, "category_scores") : null;
+        Map<String, Object> flags = result != null ? childMap(result, "categories") : null;
+
+        int scoreMask = 0;
+        int flagMask = 0;
+        int flagBits = 0;
+        List<Float> vector = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (scores != null && scores.get(CATEGORIES[i]) instanceof Number) {
+                scoreMask |= 1 << i;
+                vector.add(((Number) scores.remove(CATEGORIES[i])).floatValue());
+            }
+            if (flags != null && flags.get(CATEGORIES[i]) instanceof Boolean) {
+                flagMask |= 1 << i;
+                if ((Boolean) flags.remove(CATEGORIES[i])) {
+                    flagBits |= 1 << i;
+                }
+            }
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeInt(scoreMask);
+            out.writeInt(flagMask);
+            out.writeInt(flagBits);
+            for (Float score : vector) {
+                out.writeFloat(score);
+            }
+            out.write(deflate(objectMapper.writeValueAsBytes(remainder)));
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode raw response", e);
+        }
+    }
+
+    // Restores the provider response from its compact form
+    public static Map<String, Object> decode(byte[] encoded) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported raw response encoding version: " + version);
+            }
+            int scoreMask = in.readInt();
+            int flagMask = in.readInt();
+            int flagBits = in.readInt();
+
+            Map<String, Object> scores = new LinkedHashMap<>();
+            Map<String, Object> flags = new LinkedHashMap<>();
+            for (int i = 0; i < CATEGORIES.length; i++) {
+                if ((scoreMask & (1 << i)) != 0) {
+                    // Widen through the decimal form so 0.91f reads back as 0.91, not 0.9100000262260437
+                    scores.put(CATEGORIES[i], Double.parseDouble(Float.toString(in.readFloat())));
+                }
+                if ((flagMask & (1 << i)) != 0) {
+                    flags.put(CATEGORIES[i], (flagBits & (1 << i)) != 0);
+                }
+            }
+
+            Map<String, Object> response = toMap(inflate(in.readAllBytes()));
+            Map<String, Object> result = firstResult(response);
+            if (result != null) {
+                if (!flags.isEmpty()) {
+                    flags.putAll(childMapOrEmpty(result, "categories"));
+                    result.put("categories", flags);
+                }
+                if (!scores.isEmpty()) {
+                    scores.putAll(childMapOrEmpty(result, "category_scores"));
+                    result.put("category_scores", scores);
+                }
+            }
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode raw response", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] json) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(json);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 2 + 16);
+            byte[] buffer = new byte[512];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[512];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                    } else if (inflater.needsInput()) {
+                        throw new IllegalArgumentException("Truncated raw response encoding");
+                    }
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt raw response encoding", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Sample of what the provider usually returns; shared substrings compress to back-references.
+    // Stored encodings depend on these exact bytes: any change needs a new VERSION.
+    private static byte[] buildDictionary() {
+        StringBuilder categories = new StringBuilder();
+        for (String category : CATEGORIES) {
+            categories.append('"').append(category).append("\":[\"text\"],");
+            categories.append('"').append(category).append("\":[\"text\",\"image\"],");
+        }
+        return ("{\"id\":\"modr-\",\"model\":\"omni-moderation-latest\",\"model\":\"text-moderation-latest\","
+                + "\"results\":[{\"flagged\":false,\"flagged\":true,\"categories\":{},\"category_scores\":{},"
+                + "\"category_applied_input_types\":{" + categories + "}}],"
+                + "\"mock\":true,\"provider\":\"mock\",\"positive\":true,\"text_length\":,\"timestamp\":}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> firstResult(Map<String, Object> response) {
+        Object results = response.get("results");
+        if (results instanceof List && !((List<?>) results).isEmpty() && ((List<?>) results).get(0) instanceof Map) {
+            return (Map<String, Object>) ((List<?>) results).get(0);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> childMap(Map<String, Object> parent, String key) {
+        Object child = parent.get(key);
+        return child instanceof Map ? (Map<String, Object>) child : null;
+    }
+
+    private static Map<String, Object> childMapOrEmpty(Map<String, Object> parent, String key) {
+        Map<String, Object> child = childMap(parent, key);
+        return child != null ? child : Map.of();
+    }
+
+    // The caller's map may be immutable and must not be changed, so strip categories from a copy
+    private static Map<String, Object> deepCopy(Map<String, Object> response) {
+        try {
+            return toMap(objectMapper.writeValueAsBytes(response));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy raw response", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toMap(byte[] json) throws IOException {
+        return objectMapper.readValue(json, LinkedHashMap.class);
+    }
+}
@@ -3,19 +3,24 @@ package com.crowdshield.worker;
 import com.crowdshield.api.dto.ModerationScores;
 import com.crowdshield.client.MLModerationClient;
 import com.crowdshield.model.Content;
-import com.crowdshield.model.ModerationJob;
 import com.crowdshield.queue.RedisKeys;
 import com.crowdshield.repository.ContentRepository;
 import com.crowdshield.repository.ModerationJobRepository;
+import com.crowdshield.service.ContentService;
 import com.crowdshield.service.ModerationService;
 import com.crowdshield.service.QueueService;
+import com.crowdshield.service.TextBlobService;
+import com.crowdshield.service.VerdictWaitService;
+import com.crowdshield.util.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -26,35 +31,57 @@ public class ModerationWorker implements CommandLineRunner {
     private final QueueService queueService;
     private final ContentRepository contentRepository;
     private final ModerationService moderationService;
+    private final ContentService contentService;
     private final MLModerationClient mlModerationClient;
     private final ModerationJobRepository jobRepository;
     private final com.crowdshield.service.WebSocketService webSocketService;
+    private final VerdictWaitService verdictWaitService;
     private final int maxRetries;
+    // Whether the PROCESSING status is written before the ML call; turning it off saves a round trip per job
+    // but leaves items PENDING while in flight
+    private final boolean trackProcessing;
 
     private volatile boolean running = true;
     private final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+    // Runs what follows a job's persistence (failure handling, acknowledgement) so the Redis calls it makes
+    // never hold up the result writer thread that completes the job
+    private final ExecutorService completionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "moderation-job-completion");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public ModerationWorker(
             QueueService queueService,
             ContentRepository contentRepository,
             ModerationService moderationService,
+            ContentService contentService,
             MLModerationClient mlModerationClient,
             ModerationJobRepository jobRepository,
             com.crowdshield.service.WebSocketService webSocketService,
-            @Value("${queue.worker.max-retries:3}") int maxRetries) {
+            VerdictWaitService verdictWaitService,
+            @Value("${queue.worker.max-retries:3}") int maxRetries,
+            @Value("${queue.worker.track-processing:true}") boolean trackProcessing) {
         this.queueService = queueService;
         this.contentRepository = contentRepository;
         this.moderationService = moderationService;
+        this.contentService = contentService;
         this.mlModerationClient = mlModerationClient;
         this.jobRepository = jobRepository;
         this.webSocketService = webSocketService;
+        this.verdictWaitService = verdictWaitService;
         this.maxRetries = maxRetries;
+        this.trackProcessing = trackProcessing;
     }
 
     // Starts worker threads for main queue and retry queue processing
     @Override
     public void run(String... args) {
         log.info("Starting ModerationWorker...");
+
+        // Jobs this node claimed before a crash or restart never got their outcome recorded
+        queueService.registerNode();
+        queueService.requeueInFlight();
         
         // Start worker thread
         executorService.submit(this::processJobs);
@@ -67,6 +94,7 @@ public class ModerationWorker implements CommandLineRunner {
             log.info("Shutting down ModerationWorker...");
             running = false;
             executorService.shutdown();
+            completionExecutor.shutdown();
         }));
     }
 
@@ -77,7 +105,7 @@ public class ModerationWorker implements CommandLineRunner {
             try {
                 // Use 5 second timeout instead of 0 to avoid Redis connection timeout issues
                 // This allows the connection to stay alive while still blocking for jobs
-                Map<String, Object> job = queueService.popFromQueue(RedisKeys.MAIN_QUEUE, 5);
+                String job = queueService.claimFromMainQueue(5);
                 
                 if (job != null) {
                     processJob(job);
@@ -157,13 +185,24 @@ public class ModerationWorker implements CommandLineRunner {
         }
     }
 
-    // Processes a single moderation job: calls ML API, applies rules, saves results, sends WebSocket updates
-    private void processJob(Map<String, Object> job) {
+    // Processes a single moderation job: calls ML API, applies rules, saves results, sends WebSocket updates.
+    // The job is acknowledged only once its verdict is committed or its failure has been queued for retry.
+    @SuppressWarnings("unchecked")
+    private void processJob(String jobJson) {
+        Map<String, Object> job = JsonUtils.fromJson(jobJson, Map.class);
+        if (job == null) {
+            log.error("Dropping unreadable job: {}", jobJson);
+            queueService.ack(jobJson);
+            return;
+        }
+
         UUID jobId = UUID.fromString((String) job.get("job_id"));
         UUID contentId = UUID.fromString((String) job.get("content_id"));
         String contentType = (String) job.get("content_type");
-        String text = (String) job.get("text");
+        String textHash = textHashOf(job);
         String imageUrl = (String) job.get("image_url");
+        String userSegment = getStringValue(job, "user_segment");
+        String channel = getStringValue(job, "channel");
         int attempts = getIntValue(job, "attempts", 0);
 
         log.info("Processing job - job_id: {}, content_id: {}, type: {}, attempts: {}", 
@@ -173,22 +212,32 @@ public class ModerationWorker implements CommandLineRunner {
             // Send QUEUED status (30%)
             webSocketService.sendProgressUpdate(contentId, "QUEUED", 30);
 
+            // Jobs queued before segment and channel were part of the payload need one read
+            if (!job.containsKey("channel")) {
+                Content content = contentRepository.findById(contentId)
+                        .orElseThrow(() -> new RuntimeException("Content not found: " + contentId));
+                userSegment = content.getUserSegment();
+                channel = content.getChannel();
+            }
+
             // Update status to PROCESSING
-            Content content = contentRepository.findById(contentId)
-                    .orElseThrow(() -> new RuntimeException("Content not found: " + contentId));
-            
-            content.setStatus(Content.ContentStatus.PROCESSING);
-            contentRepository.save(content);
+            if (trackProcessing
+                    && contentRepository.updateStatus(contentId, Content.ContentStatus.PROCESSING, LocalDateTime.now()) == 0) {
+                throw new RuntimeException("Content not found: " + contentId);
+            }
 
             // Send PROCESSING status (60%)
             webSocketService.sendProgressUpdate(contentId, "PROCESSING", 60);
 
-            // Track job
-            trackJob(jobId, contentId, attempts, RedisKeys.MAIN_QUEUE, null);
-
             // Call ML API
             ModerationScores scores;
             if ("TEXT".equals(contentType)) {
+                // Jobs queued before texts were stored by hash still carry the text itself
+                String text = getStringValue(job, "text");
+                if (text == null) {
+                    text = contentService.getText(contentId, textHash)
+                            .orElseThrow(() -> new RuntimeException("Text not found for content: " + contentId));
+                }
                 scores = mlModerationClient.callTextModeration(text);
             } else {
                 scores = mlModerationClient.callImageModeration(imageUrl);
@@ -197,32 +246,59 @@ public class ModerationWorker implements CommandLineRunner {
             // Send AI_COMPLETED status (90%)
             webSocketService.sendProgressUpdate(contentId, "AI_COMPLETED", 90);
 
-            // Save moderation result (this also updates content status)
-            moderationService.saveModerationResult(contentId, scores);
+            // Hand the verdict to the batched persistence stage (this also sends DONE once committed)
+            String resolvedSegment = userSegment;
+            String resolvedChannel = channel;
+            moderationService.submitModerationResult(jobId, contentId, Content.ContentType.valueOf(contentType),
+                            userSegment, channel, attempts, scores)
+                    .whenCompleteAsync((ignored, error) -> {
+                        if (error != null) {
+                            handleFailure(job, resolvedSegment, resolvedChannel, error);
+                        } else {
+                            log.info("Job completed successfully - job_id: {}, content_id: {}", jobId, contentId);
+                        }
+                        acknowledge(jobJson, jobId);
+                    }, completionExecutor);
 
-            // Send DONE status (100%) with final label
-            String finalLabel = content.getStatus() == Content.ContentStatus.SAFE ? "SAFE" : "FLAGGED";
-            webSocketService.sendStatusUpdate(contentId, "DONE", finalLabel);
-            webSocketService.sendProgressUpdate(contentId, "DONE", 100);
-
-            log.info("Job completed successfully - job_id: {}, content_id: {}", jobId, contentId);
+        } catch (Exception e) {
+            handleFailure(job, userSegment, channel, e);
+            acknowledge(jobJson, jobId);
+        }
+    }
 
+    // Removes a finished job from this node's in-flight list; if that fails, the job is redone after a restart
+    private void acknowledge(String jobJson, UUID jobId) {
+        try {
+            queueService.ack(jobJson);
         } catch (Exception e) {
-            log.error("Job processing failed - job_id: {}, content_id: {}, error: {}", 
-                    jobId, contentId, e.getMessage(), e);
+            log.error("Failed to acknowledge job - job_id: {}, error: {}", jobId, e.getMessage());
+        }
+    }
 
-            // Send error via WebSocket
-            webSocketService.sendError(contentId, e.getMessage());
+    // Sends the error to subscribers and moves the job to the retry queue, or to the DLQ once retries are exhausted
+    private void handleFailure(Map<String, Object> job, String userSegment, String channel, Throwable e) {
+        UUID jobId = UUID.fromString((String) job.get("job_id"));
+        UUID contentId = UUID.fromString((String) job.get("content_id"));
+        String contentType = (String) job.get("content_type");
+        String textHash = textHashOf(job);
+        String imageUrl = (String) job.get("image_url");
+        int attempts = getIntValue(job, "attempts", 0);
 
-            attempts++;
-            
-            if (attempts >= maxRetries) {
-                moveToDLQ(job, e.getMessage());
-            } else {
-                // Move to retry queue
-                queueService.pushToRetryQueue(jobId, contentId, contentType, text, imageUrl, attempts);
-                trackJob(jobId, contentId, attempts, RedisKeys.RETRY_QUEUE, e.getMessage());
-            }
+        log.error("Job processing failed - job_id: {}, content_id: {}, error: {}",
+                jobId, contentId, e.getMessage(), e);
+
+        // Send error via WebSocket
+        webSocketService.sendError(contentId, e.getMessage());
+
+        attempts++;
+
+        if (attempts >= maxRetries) {
+            moveToDLQ(job, e.getMessage());
+        } else {
+            // Track first: if that fails the job is not acknowledged and nothing has been pushed twice
+            trackJob(jobId, contentId, attempts, RedisKeys.RETRY_QUEUE, e.getMessage());
+            queueService.pushToRetryQueue(jobId, contentId, contentType, textHash, imageUrl,
+                    userSegment, channel, attempts);
         }
     }
 
@@ -231,11 +307,12 @@ public class ModerationWorker implements CommandLineRunner {
         UUID jobId = UUID.fromString((String) job.get("job_id"));
         UUID contentId = UUID.fromString((String) job.get("content_id"));
         String contentType = (String) job.get("content_type");
-        String text = (String) job.get("text");
+        String textHash = textHashOf(job);
         String imageUrl = (String) job.get("image_url");
         int attempts = getIntValue(job, "attempts", 0);
 
-        queueService.pushToMainQueue(jobId, contentId, contentType, text, imageUrl, attempts);
+        queueService.pushToMainQueue(jobId, contentId, contentType, textHash, imageUrl,
+                getStringValue(job, "user_segment"), getStringValue(job, "channel"), attempts);
         trackJob(jobId, contentId, attempts, RedisKeys.MAIN_QUEUE, null);
     }
 
@@ -244,32 +321,38 @@ public class ModerationWorker implements CommandLineRunner {
         UUID jobId = UUID.fromString((String) job.get("job_id"));
         UUID contentId = UUID.fromString((String) job.get("content_id"));
         String contentType = (String) job.get("content_type");
-        String text = (String) job.get("text");
+        String textHash = textHashOf(job);
         String imageUrl = (String) job.get("image_url");
         int attempts = getIntValue(job, "attempts", 0);
 
-        queueService.pushToDLQ(jobId, contentId, contentType, text, imageUrl, attempts, error);
         trackJob(jobId, contentId, attempts, RedisKeys.DLQ, error);
+        queueService.pushToDLQ(jobId, contentId, contentType, textHash, imageUrl,
+                getStringValue(job, "user_segment"), getStringValue(job, "channel"), attempts, error);
 
         // Update content status to ERROR
-        contentRepository.findById(contentId).ifPresent(content -> {
-            content.setStatus(Content.ContentStatus.ERROR);
-            contentRepository.save(content);
-        });
+        contentRepository.updateStatus(contentId, Content.ContentStatus.ERROR, LocalDateTime.now());
+        verdictWaitService.publishError(contentId);
     }
 
-    // Updates or creates job tracking record in database
+    // Updates or creates job tracking record in database with a single upsert
     private void trackJob(UUID jobId, UUID contentId, int attempts, String queueName, String error) {
-        ModerationJob job = jobRepository.findByContentId(contentId)
-                .orElse(ModerationJob.builder()
-                        .id(jobId)
-                        .contentId(contentId)
-                        .build());
-
-        job.setAttempts(attempts);
-        job.setQueueName(queueName);
-        job.setLastError(error);
-        jobRepository.save(job);
+        jobRepository.upsertByContentId(jobId, contentId, attempts, queueName, error);
+    }
+
+    // Returns the text hash of a job; jobs queued before texts were stored by hash carry the text instead
+    private String textHashOf(Map<String, Object> job) {
+        String textHash = getStringValue(job, "text_hash");
+        String text = getStringValue(job, "text");
+        return textHash == null && text != null ? TextBlobService.hash(text) : textHash;
+    }
+
+    // Extracts string value from map, treating missing and empty values as null
+    private String getStringValue(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        if (value instanceof String && !((String) value).isEmpty()) {
+            return (String) value;
+        }
+        return null;
     }
 
     // Extracts integer value from map or returns default if not found or invalid type
@@ -1,13 +1,27 @@
 -- CrowdShield Database Schema
 
+-- Table: text_blobs (each distinct text body once, keyed by its SHA-256)
+CREATE TABLE IF NOT EXISTS text_blobs (
+    hash VARCHAR(64) PRIMARY KEY,
+    length INT NOT NULL,
+    head TEXT NOT NULL, -- first 101 characters, for listings
+    body TEXT, -- NULL when compressed_body is used
+    compressed_body BYTEA, -- deflated UTF-8 for bodies of storage.text.compress-threshold bytes or more
+    search_vector TSVECTOR, -- search terms of the first 100000 characters
+    created_at TIMESTAMP DEFAULT NOW()
+);
+
 -- Table: content
 CREATE TABLE IF NOT EXISTS content (
     id UUID PRIMARY KEY,
     user_id VARCHAR(255) NOT NULL,
     type VARCHAR(20) CHECK (type IN ('TEXT', 'IMAGE')) NOT NULL,
-    text_content TEXT,
+    text_content TEXT, -- legacy inline text; new rows use text_hash
+    text_hash VARCHAR(64) REFERENCES text_blobs(hash),
     image_url TEXT,
-    status VARCHAR(20) CHECK (status IN ('PENDING', 'PROCESSING', 'SAFE', 'FLAGGED', 'ERROR')) NOT NULL DEFAULT 'PENDING',
+    user_segment VARCHAR(64),
+    channel VARCHAR(64),
+    status VARCHAR(20) CHECK (status IN ('PENDING', 'PROCESSING', 'SAFE', 'FLAGGED', 'REVIEW', 'ERROR')) NOT NULL DEFAULT 'PENDING',
     created_at TIMESTAMP DEFAULT NOW(),
     updated_at TIMESTAMP DEFAULT NOW()
 );
@@ -20,8 +34,9 @@ CREATE TABLE IF NOT EXISTS moderation_results (
     hate_score FLOAT,
     sexual_score FLOAT,
     violence_score FLOAT,
-    overall_label VARCHAR(20) CHECK (overall_label IN ('SAFE', 'FLAGGED')),
+    overall_label VARCHAR(20) CHECK (overall_label IN ('SAFE', 'FLAGGED', 'REVIEW')),
     raw_response JSONB,
+    raw_encoded BYTEA, -- compact provider response (persistence.raw-response.policy = COMPACT)
     created_at TIMESTAMP DEFAULT NOW()
 );
 
@@ -32,6 +47,8 @@ CREATE TABLE IF NOT EXISTS moderation_rules (
     hate_threshold FLOAT NOT NULL DEFAULT 0.6,
     sexual_threshold FLOAT NOT NULL DEFAULT 0.6,
     violence_threshold FLOAT NOT NULL DEFAULT 0.6,
+    policy TEXT,
+    channel VARCHAR(64), -- NULL for the global default rule
     updated_at TIMESTAMP DEFAULT NOW()
 );
 
@@ -57,10 +74,112 @@ CREATE TABLE IF NOT EXISTS moderation_jobs (
     updated_at TIMESTAMP DEFAULT NOW()
 );
 
+-- Table: content_archive (index of content moved to archives by retention)
+CREATE TABLE IF NOT EXISTS content_archive (
+    content_id UUID PRIMARY KEY,
+    archive_file VARCHAR(255) NOT NULL,
+    row_index INT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    archived_at TIMESTAMP NOT NULL
+);
+
+-- Table: content_archive_files (gzip archives written by retention, one per batch)
+CREATE TABLE IF NOT EXISTS content_archive_files (
+    file_name VARCHAR(255) PRIMARY KEY,
+    data BYTEA NOT NULL,
+    row_count INT NOT NULL,
+    archived_at TIMESTAMP NOT NULL
+);
+
+-- Table: content_status_counts (per-status counters for the dashboard, one row per status and writing session;
+-- seeded and corrected by StatusCounterService at startup and on a schedule, never reset here)
+CREATE TABLE IF NOT EXISTS content_status_counts (
+    status VARCHAR(20) NOT NULL,
+    shard INT NOT NULL,
+    count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (status, shard)
+);
+
+-- Table: moderation_view (denormalized admin listing rows; its triggers are installed and the rows
+-- populated by the application, see ModerationViewService)
+CREATE TABLE IF NOT EXISTS moderation_view (
+    content_id UUID PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    channel VARCHAR(64),
+    text_hash VARCHAR(64),
+    preview TEXT,
+    toxicity_score FLOAT,
+    hate_score FLOAT,
+    sexual_score FLOAT,
+    violence_score FLOAT,
+    overall_label VARCHAR(20),
+    result_at TIMESTAMP,
+    scores_changed_at TIMESTAMP,
+    override_count INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP
+);
+
+-- Migration for databases created by earlier versions; runs before anything that uses the new columns
+ALTER TABLE content ADD COLUMN IF NOT EXISTS user_segment VARCHAR(64);
+ALTER TABLE moderation_rules ADD COLUMN IF NOT EXISTS policy TEXT;
+ALTER TABLE content ADD COLUMN IF NOT EXISTS channel VARCHAR(64);
+ALTER TABLE content ADD COLUMN IF NOT EXISTS text_hash VARCHAR(64) REFERENCES text_blobs(hash);
+ALTER TABLE moderation_rules ADD COLUMN IF NOT EXISTS channel VARCHAR(64);
+ALTER TABLE moderation_results ADD COLUMN IF NOT EXISTS raw_encoded BYTEA;
+ALTER TABLE text_blobs ADD COLUMN IF NOT EXISTS search_vector TSVECTOR;
+ALTER TABLE moderation_view ADD COLUMN IF NOT EXISTS scores_changed_at TIMESTAMP;
+ALTER TABLE content DROP CONSTRAINT IF EXISTS content_status_check;
+ALTER TABLE content ADD CONSTRAINT content_status_check
+    CHECK (status IN ('PENDING', 'PROCESSING', 'SAFE', 'FLAGGED', 'REVIEW', 'ERROR'));
+ALTER TABLE moderation_results DROP CONSTRAINT IF EXISTS moderation_results_overall_label_check;
+ALTER TABLE moderation_results ADD CONSTRAINT moderation_results_overall_label_check
+    CHECK (overall_label IN ('SAFE', 'FLAGGED', 'REVIEW'));
+-- Job tracking is upserted by content_id; keep only the newest row per content item before adding the unique index
+DELETE FROM moderation_jobs j USING moderation_jobs newer
+    WHERE j.content_id = newer.content_id
+    AND (j.updated_at, j.id) < (newer.updated_at, newer.id);
+
+CREATE OR REPLACE FUNCTION content_status_count_trigger() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND OLD.status IS NOT DISTINCT FROM NEW.status THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        INSERT INTO content_status_counts (status, shard, count) VALUES (OLD.status, pg_backend_pid(), -1)
+        ON CONFLICT (status, shard) DO UPDATE SET count = content_status_counts.count - 1;
+    END IF;
+    IF TG_OP IN ('UPDATE', 'INSERT') THEN
+        INSERT INTO content_status_counts (status, shard, count) VALUES (NEW.status, pg_backend_pid(), 1)
+        ON CONFLICT (status, shard) DO UPDATE SET count = content_status_counts.count + 1;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS content_status_count ON content;
+CREATE TRIGGER content_status_count AFTER INSERT OR DELETE OR UPDATE OF status ON content
+    FOR EACH ROW EXECUTE FUNCTION content_status_count_trigger();
+
 -- Indexes
 CREATE INDEX IF NOT EXISTS idx_content_status ON content(status);
+CREATE INDEX IF NOT EXISTS idx_content_created_at_id ON content(created_at, id);
+CREATE INDEX IF NOT EXISTS idx_content_status_created_at_id ON content(status, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_content_status_updated_at ON content(status, updated_at);
+CREATE INDEX IF NOT EXISTS idx_content_text_hash ON content(text_hash);
 CREATE INDEX IF NOT EXISTS idx_moderation_results_content_id ON moderation_results(content_id);
 CREATE INDEX IF NOT EXISTS idx_admin_actions_content_id ON admin_actions(content_id);
+CREATE INDEX IF NOT EXISTS idx_content_archive_file ON content_archive(archive_file);
+CREATE INDEX IF NOT EXISTS idx_moderation_view_created_at_id ON moderation_view(created_at, content_id);
+CREATE INDEX IF NOT EXISTS idx_moderation_view_status_created_at_id ON moderation_view(status, created_at, content_id);
+CREATE INDEX IF NOT EXISTS idx_moderation_view_user_created_at_id ON moderation_view(user_id, created_at, content_id);
+CREATE INDEX IF NOT EXISTS idx_moderation_view_text_hash ON moderation_view(text_hash);
+CREATE INDEX IF NOT EXISTS idx_moderation_view_scores_changed_at ON moderation_view(scores_changed_at);
+CREATE INDEX IF NOT EXISTS idx_text_blobs_search_vector ON text_blobs USING GIN (search_vector);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_moderation_jobs_content_id ON moderation_jobs(content_id);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_moderation_rules_channel ON moderation_rules(channel) WHERE channel IS NOT NULL;
 
 -- Insert default moderation rules
 INSERT INTO moderation_rules (toxicity_threshold, hate_threshold, sexual_threshold, violence_threshold)
@@ -0,0 +1,109 @@
+package com.crowdshield.rules;
+
+import com.crowdshield.model.Content;
+import com.crowdshield.model.ModerationResult.ModerationLabel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolicyCompilerTest {
+
+    private static final Content.ContentType TEXT = Content.ContentType.TEXT;
+    private static final Content.ContentType IMAGE = Content.ContentType.IMAGE;
+
+    @Test
+    void firstMatchingStatementDecides() {
+        CompiledPolicy policy = PolicyCompiler.compile(
+                "safe if segment == \"verified\" and toxicity < 0.9\n"
+                        + "flag if toxicity > 0.7 or hate > 0.6\n"
+                        + "review if toxicity > 0.4\n");
+
+        assertEquals(ModerationLabel.SAFE, policy.evaluate(scores(0.8f, 0, 0, 0), TEXT, "verified"));
+        assertEquals(ModerationLabel.FLAGGED, policy.evaluate(scores(0.8f, 0, 0, 0), TEXT, "new"));
+        assertEquals(ModerationLabel.FLAGGED, policy.evaluate(scores(0, 0.7f, 0, 0), TEXT, "new"));
+        assertEquals(ModerationLabel.REVIEW, policy.evaluate(scores(0.5f, 0, 0, 0), TEXT, "new"));
+        assertEquals(3, policy.getStatementCount());
+    }
+
+    @Test
+    void unmatchedContentIsSafe() {
+        CompiledPolicy policy = PolicyCompiler.compile("flag if toxicity > 0.7");
+
+        assertEquals(ModerationLabel.SAFE, policy.evaluate(scores(0.7f, 0, 0, 0), TEXT, null));
+    }
+
+    @Test
+    void evaluatesArithmeticAndMinMax() {
+        CompiledPolicy weighted = PolicyCompiler.compile("review if 0.6 * toxicity + 0.4 * hate >= 0.45");
+        assertEquals(ModerationLabel.REVIEW, weighted.evaluate(scores(0.5f, 0.5f, 0, 0), TEXT, null));
+        assertEquals(ModerationLabel.SAFE, weighted.evaluate(scores(0.5f, 0.3f, 0, 0), TEXT, null));
+
+        CompiledPolicy max = PolicyCompiler.compile("flag if max(violence, sexual) > 0.2");
+        assertEquals(ModerationLabel.FLAGGED, max.evaluate(scores(0, 0, 0.3f, 0), TEXT, null));
+        assertEquals(ModerationLabel.SAFE, max.evaluate(scores(0.9f, 0, 0.1f, 0.1f), TEXT, null));
+
+        CompiledPolicy min = PolicyCompiler.compile("flag if min(toxicity, hate, -(0 - 1)) > 0.5");
+        assertEquals(ModerationLabel.FLAGGED, min.evaluate(scores(0.6f, 0.7f, 0, 0), TEXT, null));
+        assertEquals(ModerationLabel.SAFE, min.evaluate(scores(0.6f, 0.4f, 0, 0), TEXT, null));
+    }
+
+    @Test
+    void comparesTypeAndSegment() {
+        CompiledPolicy policy = PolicyCompiler.compile(
+                "flag if type == IMAGE and sexual > 0.3\n"
+                        + "flag if segment in (\"kids\", teens) and not (violence <= 0.2)\n");
+
+        assertEquals(ModerationLabel.FLAGGED, policy.evaluate(scores(0, 0, 0.4f, 0), IMAGE, null));
+        assertEquals(ModerationLabel.SAFE, policy.evaluate(scores(0, 0, 0.4f, 0), TEXT, null));
+        assertEquals(ModerationLabel.FLAGGED, policy.evaluate(scores(0, 0, 0, 0.3f), TEXT, "teens"));
+        assertEquals(ModerationLabel.SAFE, policy.evaluate(scores(0, 0, 0, 0.3f), TEXT, "adults"));
+        assertEquals(ModerationLabel.SAFE, policy.evaluate(scores(0, 0, 0, 0.3f), TEXT, null));
+    }
+
+    @Test
+    void ignoresCommentsAndBlankLines() {
+        CompiledPolicy policy = PolicyCompiler.compile(
+                "# kids need stricter limits\n"
+                        + "\n"
+                        + "flag if segment == \"#kids\" and toxicity > 0.1   # not a comment inside quotes\n");
+
+        assertEquals(1, policy.getStatementCount());
+        assertEquals(ModerationLabel.FLAGGED, policy.evaluate(scores(0.2f, 0, 0, 0), TEXT, "#kids"));
+    }
+
+    @Test
+    void reportsTheLineOfAnError() {
+        PolicyCompileException e = assertThrows(PolicyCompileException.class,
+                () -> PolicyCompiler.compile("flag if toxicity > 0.7\n\nflag if spam > 0.5"));
+
+        assertEquals(3, e.getLine());
+        assertTrue(e.getMessage().contains("unknown category 'spam'"), e.getMessage());
+    }
+
+    @Test
+    void rejectsMalformedPolicies() {
+        assertThrows(PolicyCompileException.class, () -> PolicyCompiler.compile("# only a comment"));
+        assertThrows(PolicyCompileException.class, () -> PolicyCompiler.compile("block if toxicity > 0.7"));
+        assertThrows(PolicyCompileException.class, () -> PolicyCompiler.compile("flag toxicity > 0.7"));
+        assertThrows(PolicyCompileException.class, () -> PolicyCompiler.compile("flag if max(toxicity) > 0.7"));
+        assertThrows(PolicyCompileException.class, () -> PolicyCompiler.compile("flag if type == VIDEO"));
+        assertThrows(PolicyCompileException.class, () -> PolicyCompiler.compile("flag if segment == \"kids"));
+        assertThrows(PolicyCompileException.class, () -> PolicyCompiler.compile("flag if toxicity > 0.7 0.8"));
+    }
+
+    @Test
+    void thresholdPolicyMatchesTheLegacyThresholds() {
+        String source = PolicyCompiler.thresholdPolicy(0.7f, 0.6f, 0.0005f, 0.8f);
+        CompiledPolicy policy = PolicyCompiler.compile(source);
+
+        assertEquals("flag if toxicity > 0.7 or hate > 0.6 or sexual > 0.0005 or violence > 0.8", source);
+        assertEquals(ModerationLabel.FLAGGED, policy.evaluate(scores(0, 0, 0.001f, 0), TEXT, null));
+        assertEquals(ModerationLabel.SAFE, policy.evaluate(scores(0.7f, 0.6f, 0.0005f, 0.8f), TEXT, null));
+    }
+
+    private static float[] scores(float toxicity, float hate, float sexual, float violence) {
+        return ScoreVector.of(toxicity, hate, sexual, violence);
+    }
+}
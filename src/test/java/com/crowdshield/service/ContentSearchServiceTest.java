@@ -0,0 +1,35 @@
+package com.crowdshield.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ContentSearchServiceTest {
+
+    @Test
+    void matchesEveryWordAsAPrefix() {
+        assertEquals("spam:* & link:*", ContentSearchService.toTsQuery("  Spam LINK "));
+    }
+
+    @Test
+    void dropsPunctuationAndOperators() {
+        assertEquals("buy:* & now:* & 100:*", ContentSearchService.toTsQuery("buy!now & (100) :* |"));
+    }
+
+    @Test
+    void keepsNonLatinWords() {
+        assertEquals("größe:* & ошибка:*", ContentSearchService.toTsQuery("Größe Ошибка"));
+    }
+
+    @Test
+    void matchesQuotedQueriesAsAPhrase() {
+        assertEquals("free:* <-> money:*", ContentSearchService.toTsQuery("\"free money\""));
+    }
+
+    @Test
+    void rejectsQueriesWithoutWords() {
+        assertThrows(IllegalArgumentException.class, () -> ContentSearchService.toTsQuery("!!! & |"));
+        assertThrows(IllegalArgumentException.class, () -> ContentSearchService.toTsQuery("\""));
+    }
+}
@@ -0,0 +1,45 @@
+package com.crowdshield.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageCursorTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_456_000);
+        UUID id = UUID.randomUUID();
+
+        PageCursor cursor = PageCursor.decode(new PageCursor(createdAt, id).encode());
+
+        assertEquals(createdAt, cursor.getCreatedAt());
+        assertEquals(id, cursor.getId());
+    }
+
+    @Test
+    void encodesAsUrlSafeTokenWithoutPadding() {
+        String token = new PageCursor(LocalDateTime.of(2024, 3, 1, 0, 0), UUID.randomUUID()).encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void rejectsTokensItDidNotProduce() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token("2024-03-01T00:00")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token("yesterday|" + UUID.randomUUID())));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token("2024-03-01T00:00|42")));
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
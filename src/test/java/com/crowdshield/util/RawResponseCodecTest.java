@@ -0,0 +1,85 @@
+package com.crowdshield.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RawResponseCodecTest {
+
+    private static final Map<String, Object> RESPONSE = Map.of(
+            "id", "modr-123",
+            "model", "omni-moderation-latest",
+            "results", List.of(Map.of(
+                    "flagged", true,
+                    "categories", Map.of("hate", true, "violence", false, "custom", true),
+                    "category_scores", Map.of("hate", 0.91, "violence", 0.0001, "custom", 0.5),
+                    "category_applied_input_types", Map.of("hate", List.of("text")))));
+
+    @Test
+    void decodesTheEncodedResponse() {
+        Map<String, Object> decoded = RawResponseCodec.decode(RawResponseCodec.encode(RESPONSE));
+
+        assertEquals("modr-123", decoded.get("id"));
+        assertEquals("omni-moderation-latest", decoded.get("model"));
+        Map<?, ?> result = (Map<?, ?>) ((List<?>) decoded.get("results")).get(0);
+        assertEquals(true, result.get("flagged"));
+        assertEquals(Map.of("hate", true, "violence", false, "custom", true), result.get("categories"));
+        assertEquals(Map.of("hate", 0.91, "violence", 0.0001, "custom", 0.5), result.get("category_scores"));
+        assertEquals(Map.of("hate", List.of("text")), result.get("category_applied_input_types"));
+    }
+
+    @Test
+    void keepsScoresAtFloatPrecisionOnly() {
+        Map<String, Object> response = Map.of("results", List.of(Map.of(
+                "category_scores", Map.of("hate", 0.123456789))));
+
+        Map<String, Object> decoded = RawResponseCodec.decode(RawResponseCodec.encode(response));
+
+        Map<?, ?> scores = (Map<?, ?>) ((Map<?, ?>) ((List<?>) decoded.get("results")).get(0)).get("category_scores");
+        assertEquals(Double.parseDouble(Float.toString(0.123456789f)), scores.get("hate"));
+    }
+
+    @Test
+    void keepsResponsesWithoutResultsAsJson() {
+        Map<String, Object> response = Map.of("mock", true, "provider", "mock", "text_length", 12);
+
+        assertEquals(response, RawResponseCodec.decode(RawResponseCodec.encode(response)));
+    }
+
+    @Test
+    void namesTheEncoding() {
+        assertEquals("compact-v1", RawResponseCodec.encoding(RawResponseCodec.encode(RESPONSE)));
+    }
+
+    @Test
+    void encodingIsSmallerThanTheJson() throws Exception {
+        byte[] json = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsBytes(RESPONSE);
+
+        assertTrue(RawResponseCodec.encode(RESPONSE).length < json.length);
+    }
+
+    @Test
+    void encodingIsDeterministic() {
+        assertArrayEquals(RawResponseCodec.encode(RESPONSE), RawResponseCodec.encode(RESPONSE));
+    }
+
+    @Test
+    void rejectsUnknownOrCorruptEncodings() {
+        byte[] encoded = RawResponseCodec.encode(RESPONSE);
+
+        byte[] unknownVersion = encoded.clone();
+        unknownVersion[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> RawResponseCodec.decode(unknownVersion));
+
+        byte[] truncated = java.util.Arrays.copyOf(encoded, encoded.length - 4);
+        assertThrows(IllegalArgumentException.class, () -> RawResponseCodec.decode(truncated));
+
+        assertThrows(IllegalArgumentException.class, () -> RawResponseCodec.encoding(new byte[0]));
+    }
+}